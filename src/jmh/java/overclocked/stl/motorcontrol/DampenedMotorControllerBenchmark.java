@@ -0,0 +1,77 @@
+
+package overclocked.stl.motorcontrol;
+
+import edu.wpi.first.hal.HAL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of {@link DampenedMotorController} calls: slew limiting, jerk limiting, clamping and changing the
+ * rate limit.
+ */
+@State(Scope.Thread)
+public class DampenedMotorControllerBenchmark {
+  private static final double[] INPUTS = {0.0, 0.25, -0.5, 1.0, -1.0, 0.75, 1.5, -1.5};
+
+  private NoOpMotorController motor;
+  private DampenedMotorController controller;
+  private DampenedMotorController jerkLimitedController;
+  private int index = 0;
+
+  /**
+   * Initializes the HAL (for the FPGA clock) and creates the controller under test.
+   */
+  @Setup
+  public void setup() {
+    HAL.initialize(500, 0);
+    motor = new NoOpMotorController();
+    controller = new DampenedMotorController(motor, 2.1);
+    jerkLimitedController = new DampenedMotorController(motor, 2.1);
+    jerkLimitedController.setRateLimits(2.1, 4.0);
+    jerkLimitedController.setJerkLimit(20.0);
+  }
+
+  private double nextInput() {
+    index = (index + 1) & (INPUTS.length - 1);
+    return INPUTS[index];
+  }
+
+  /**
+   * Slew limits an input that changes on every call.
+   */
+  @Benchmark
+  public double setSlewLimited() {
+    controller.set(nextInput());
+    return motor.get();
+  }
+
+  /**
+   * Slew limits an input outside of [-1, 1], which has to be clamped first.
+   */
+  @Benchmark
+  public double setClamped() {
+    controller.set(nextInput() * 4);
+    return motor.get();
+  }
+
+  /**
+   * Slew limits an input that changes on every call, with asymmetric rate limits and a jerk limit.
+   */
+  @Benchmark
+  public double setJerkLimited() {
+    jerkLimitedController.set(nextInput());
+    return motor.get();
+  }
+
+  /**
+   * Changes the rate limit, as a command would every loop.
+   */
+  @Benchmark
+  public double setRateLimit() {
+    controller.setRateLimit(2.1 + nextInput());
+    controller.set(0.5);
+    return motor.get();
+  }
+}
@@ -0,0 +1,42 @@
+
+package overclocked.stl.motorcontrol;
+
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
+
+/**
+ * A {@link MotorController} that only remembers its last output, used to benchmark wrappers without hardware.
+ */
+public class NoOpMotorController implements MotorController {
+  private double speed = 0;
+  private boolean inverted = false;
+
+  @Override
+  public void set(double speed) {
+    this.speed = speed;
+  }
+
+  @Override
+  public double get() {
+    return speed;
+  }
+
+  @Override
+  public void setInverted(boolean isInverted) {
+    inverted = isInverted;
+  }
+
+  @Override
+  public boolean getInverted() {
+    return inverted;
+  }
+
+  @Override
+  public void disable() {
+    speed = 0;
+  }
+
+  @Override
+  public void stopMotor() {
+    speed = 0;
+  }
+}
@@ -0,0 +1,65 @@
+
+package overclocked.stl.motorcontrol;
+
+import edu.wpi.first.hal.HAL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the cost of mixing and slew limiting the drive outputs in {@link OverclockedDifferentialDrive}.
+ */
+@State(Scope.Thread)
+public class OverclockedDifferentialDriveBenchmark {
+  private static final double[] INPUTS = {0.0, 0.25, -0.5, 1.0, -1.0, 0.75, 0.1, -0.3};
+
+  private NoOpMotorController leftMotor;
+  private NoOpMotorController rightMotor;
+  private OverclockedDifferentialDrive drive;
+  private int index = 0;
+
+  /**
+   * Initializes the HAL (for the FPGA clock) and creates the drive under test.
+   */
+  @Setup
+  public void setup() {
+    HAL.initialize(500, 0);
+    leftMotor = new NoOpMotorController();
+    rightMotor = new NoOpMotorController();
+    drive = new OverclockedDifferentialDrive(leftMotor, rightMotor, 2.1);
+    drive.setSafetyEnabled(false);
+  }
+
+  /**
+   * Releases the drive's registration with the SendableRegistry.
+   */
+  @TearDown
+  public void tearDown() {
+    drive.close();
+  }
+
+  private double nextInput() {
+    index = (index + 1) & (INPUTS.length - 1);
+    return INPUTS[index];
+  }
+
+  /**
+   * Mixes linear and angular speeds into wheel speeds.
+   */
+  @Benchmark
+  public double arcadeDrive() {
+    drive.arcadeDrive(nextInput(), nextInput());
+    return leftMotor.get() + rightMotor.get();
+  }
+
+  /**
+   * Squares and limits the left and right speeds.
+   */
+  @Benchmark
+  public double tankDrive() {
+    drive.tankDrive(nextInput(), nextInput());
+    return leftMotor.get() + rightMotor.get();
+  }
+}
@@ -0,0 +1,75 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import frc.robot.Constants.AutonConstants;
+import frc.robot.Constants.DriveConstants;
+
+/**
+ * The tunable values that the autonomous routines are built from. On the robot these are always the values in
+ * {@link Constants}; the simulation harnesses can override them with system properties, so that
+ * {@link AutonSweep} can try many values without recompiling.
+ */
+public final class AutonParameters {
+  static final String SIMPLE_AUTON_SPEED_PROPERTY = "auton.simpleAutonSpeed";
+  static final String SIMPLE_AUTON_RUNTIME_PROPERTY = "auton.simpleAutonRuntime";
+  static final String MEDIUM_AUTON_OUTTAKE_RUNTIME_PROPERTY = "auton.mediumAutonOuttakeRuntime";
+  static final String ACCELERATION_RATE_LIMIT_PROPERTY = "auton.accelerationRateLimit";
+
+  /**
+   * The values in {@link Constants}.
+   */
+  public static final AutonParameters DEFAULT = new AutonParameters(
+      AutonConstants.SIMPLE_AUTON_SPEED,
+      AutonConstants.SIMPLE_AUTON_RUNTIME,
+      AutonConstants.MEDIUM_AUTON_OUTTAKE_RUNTIME,
+      DriveConstants.ACCELERATION_RATE_LIMIT);
+
+  public final double simpleAutonSpeed;
+  public final double simpleAutonRuntime;
+  public final double mediumAutonOuttakeRuntime;
+  public final double accelerationRateLimit;
+
+  /**
+   * Creates a set of autonomous parameters.
+   *
+   * @param simpleAutonSpeed The drive speed of the simple autonomous routines
+   * @param simpleAutonRuntime How long the simple autonomous routines drive, in seconds
+   * @param mediumAutonOuttakeRuntime How long the autonomous routines run the outtake, in seconds
+   * @param accelerationRateLimit The rate limit of the drive base, in units per second
+   */
+  public AutonParameters(double simpleAutonSpeed, double simpleAutonRuntime, double mediumAutonOuttakeRuntime,
+      double accelerationRateLimit) {
+    this.simpleAutonSpeed = simpleAutonSpeed;
+    this.simpleAutonRuntime = simpleAutonRuntime;
+    this.mediumAutonOuttakeRuntime = mediumAutonOuttakeRuntime;
+    this.accelerationRateLimit = accelerationRateLimit;
+  }
+
+  /**
+   * Returns the default parameters, with any value that is set as a system property (e.g.
+   * {@code -Dauton.simpleAutonSpeed=0.5}) overridden.
+   *
+   * @return the parameters
+   */
+  static AutonParameters fromSystemProperties() {
+    return new AutonParameters(
+        getProperty(SIMPLE_AUTON_SPEED_PROPERTY, DEFAULT.simpleAutonSpeed),
+        getProperty(SIMPLE_AUTON_RUNTIME_PROPERTY, DEFAULT.simpleAutonRuntime),
+        getProperty(MEDIUM_AUTON_OUTTAKE_RUNTIME_PROPERTY, DEFAULT.mediumAutonOuttakeRuntime),
+        getProperty(ACCELERATION_RATE_LIMIT_PROPERTY, DEFAULT.accelerationRateLimit));
+  }
+
+  private static double getProperty(String key, double defaultValue) {
+    String value = System.getProperty(key);
+    return value == null ? defaultValue : Double.parseDouble(value);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("speed %.2f, runtime %.2f s, outtake runtime %.2f s, rate limit %.2f /s",
+        simpleAutonSpeed, simpleAutonRuntime, mediumAutonOuttakeRuntime, accelerationRateLimit);
+  }
+}
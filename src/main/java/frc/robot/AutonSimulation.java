@@ -0,0 +1,213 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.subsystems.DriveBase;
+
+/**
+ * Runs the autonomous routines headlessly in simulation, as fast as the CPU allows.
+ *
+ * <p>
+ * The HAL clock is paused and stepped by one robot period per loop, so a full autonomous period takes milliseconds
+ * instead of seconds. For each routine this reports when the routine finished, the final simulated pose and the
+ * peak drive outputs. Run it with {@code ./gradlew simulateAuton}, optionally passing
+ * {@code -Proutines="Drive Auton,Shooting Auton"} to run only some routines.
+ *
+ * <p>
+ * The routines are built from {@link AutonParameters#fromSystemProperties()}. If the {@value #RESULTS_PROPERTY}
+ * system property is set, the results are also written to that file as tab-separated values, which is how
+ * {@link AutonSweep} collects them.
+ */
+public final class AutonSimulation {
+  static final String RESULTS_PROPERTY = "auton.results";
+
+  private static final double AUTONOMOUS_LENGTH = 15.0;
+
+  private AutonSimulation() {}
+
+  /**
+   * Runs the named autonomous routines, or all of them if none are given, and prints one result line per routine.
+   * Exits with status 1 if any routine cannot be run.
+   *
+   * @param args The names of the routines to run
+   */
+  public static void main(String... args) {
+    // Vendor libraries keep non-daemon threads running, so always exit explicitly, or a failed run never ends.
+    boolean succeeded = false;
+    try {
+      runRoutines(args);
+      succeeded = true;
+    } catch (Throwable e) {
+      e.printStackTrace();
+    } finally {
+      System.exit(succeeded ? 0 : 1);
+    }
+  }
+
+  private static void runRoutines(String... args) throws InterruptedException, IOException {
+    Robot robot = startRobot(AutonParameters.fromSystemProperties());
+    Map<String, Command> routines = robot.getRobotContainer().getAutonRoutines();
+
+    List<String> names = args.length > 0 ? Arrays.asList(args) : new ArrayList<>(routines.keySet());
+    List<String> rows = new ArrayList<>();
+    for (String name : names) {
+      Result result = runRoutine(robot, name);
+      System.out.println(result);
+      rows.add(result.toRow());
+    }
+
+    String resultsFile = System.getProperty(RESULTS_PROPERTY);
+    if (resultsFile != null) {
+      try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(resultsFile)))) {
+        rows.forEach(writer::println);
+      }
+    }
+  }
+
+  /**
+   * Initializes the simulated HAL with a paused clock and an attached (disabled) driver station, and runs
+   * robotInit() on a new {@link Robot}.
+   *
+   * @param parameters The values to build the autonomous routines from
+   * @return the initialized robot
+   */
+  static Robot startRobot(AutonParameters parameters) throws InterruptedException {
+    HAL.initialize(500, 0);
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    setMode(false, true, false);
+
+    Robot robot = new Robot(parameters);
+    robot.robotInit();
+    return robot;
+  }
+
+  /**
+   * Runs one autonomous routine for a full autonomous period, then disables the robot.
+   *
+   * @param robot A robot returned by {@link #startRobot(AutonParameters)}
+   * @param name The name of the routine, as shown in the chooser
+   * @return the result of the run
+   */
+  static Result runRoutine(Robot robot, String name) throws InterruptedException {
+    Map<String, Command> routines = robot.getRobotContainer().getAutonRoutines();
+    if (!routines.containsKey(name)) {
+      throw new IllegalArgumentException("Unknown autonomous routine: " + name);
+    }
+    Command routine = routines.get(name);
+    DriveBase driveBase = robot.getRobotContainer().getDriveBase();
+    driveBase.resetSimulation();
+
+    setMode(true, true, false);
+    robot.startAutonomous(routine);
+
+    double finishedAt = routine == null ? 0 : Double.NaN;
+    double peakLeftOutput = 0;
+    double peakRightOutput = 0;
+    for (double time = 0; time < AUTONOMOUS_LENGTH; time += TimedRobot.kDefaultPeriod) {
+      SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+      robot.robotPeriodic();
+      robot.autonomousPeriodic();
+
+      peakLeftOutput = Math.max(peakLeftOutput, Math.abs(driveBase.getLeftOutput()));
+      peakRightOutput = Math.max(peakRightOutput, Math.abs(driveBase.getRightOutput()));
+      if (Double.isNaN(finishedAt) && !routine.isScheduled()) {
+        finishedAt = time + TimedRobot.kDefaultPeriod;
+      }
+    }
+    Result result = new Result(name, finishedAt, driveBase.getSimulatedPose(), peakLeftOutput, peakRightOutput);
+
+    setMode(false, true, false);
+    robot.disabledInit();
+    return result;
+  }
+
+  /**
+   * Sets the mode of the simulated driver station, and waits until the {@link DriverStation} has seen it.
+   *
+   * @param enabled Whether the robot is enabled
+   * @param autonomous Whether the robot is in autonomous
+   * @param test Whether the robot is in test mode
+   */
+  static void setMode(boolean enabled, boolean autonomous, boolean test) throws InterruptedException {
+    DriverStationSim.setAutonomous(autonomous);
+    DriverStationSim.setTest(test);
+    DriverStationSim.setEnabled(enabled);
+    DriverStationSim.notifyNewData();
+
+    // The DriverStation caches its state on its own thread, so wait for it to catch up.
+    long deadline = System.nanoTime() + 1_000_000_000L;
+    while (DriverStation.isEnabled() != enabled || DriverStation.isAutonomous() != autonomous
+        || DriverStation.isTest() != test) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("The DriverStation did not see the mode change");
+      }
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * The outcome of one simulated autonomous routine.
+   */
+  static final class Result {
+    final String name;
+    final double finishedAt;
+    final Pose2d pose;
+    final double peakLeftOutput;
+    final double peakRightOutput;
+
+    Result(String name, double finishedAt, Pose2d pose, double peakLeftOutput, double peakRightOutput) {
+      this.name = name;
+      this.finishedAt = finishedAt;
+      this.pose = pose;
+      this.peakLeftOutput = peakLeftOutput;
+      this.peakRightOutput = peakRightOutput;
+    }
+
+    /**
+     * Parses a result written by {@link #toRow()}.
+     */
+    static Result fromRow(String row) {
+      String[] fields = row.split("\t");
+      return new Result(fields[0], Double.parseDouble(fields[1]),
+          new Pose2d(Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+              Rotation2d.fromDegrees(Double.parseDouble(fields[4]))),
+          Double.parseDouble(fields[5]), Double.parseDouble(fields[6]));
+    }
+
+    /**
+     * Returns the result as one line of tab-separated values.
+     */
+    String toRow() {
+      return String.join("\t", name, Double.toString(finishedAt), Double.toString(pose.getX()),
+          Double.toString(pose.getY()), Double.toString(pose.getRotation().getDegrees()),
+          Double.toString(peakLeftOutput), Double.toString(peakRightOutput));
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: finished at %.2f s, pose (%.3f m, %.3f m, %.1f deg), peak outputs (%.2f, %.2f)",
+          name, finishedAt, pose.getX(), pose.getY(), pose.getRotation().getDegrees(),
+          peakLeftOutput, peakRightOutput);
+    }
+  }
+}
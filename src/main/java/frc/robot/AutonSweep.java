@@ -0,0 +1,208 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes the autonomous routines by running {@link AutonSimulation} over a grid of {@link AutonParameters}.
+ *
+ * <p>
+ * The HAL is a per-process singleton, so every point of the grid is simulated in its own JVM, and up to one JVM per
+ * core runs at a time. The results are merged into one report that ranks, for each routine, every point of the grid:
+ * routines that finish within the autonomous period come first, then the ones that drove the furthest from the
+ * starting point, then the ones that finished soonest.
+ *
+ * <p>
+ * Run it with {@code ./gradlew sweepAuton}, giving each grid axis as a comma-separated list, e.g.
+ * {@code -PsimpleAutonSpeed=0.5,0.6,0.7 -PaccelerationRateLimit=1.5,2.1,3}. Axes that are not given only take the
+ * value in {@link Constants}.
+ */
+public final class AutonSweep {
+  private static final String[] AXES = {
+      AutonParameters.SIMPLE_AUTON_SPEED_PROPERTY,
+      AutonParameters.SIMPLE_AUTON_RUNTIME_PROPERTY,
+      AutonParameters.MEDIUM_AUTON_OUTTAKE_RUNTIME_PROPERTY,
+      AutonParameters.ACCELERATION_RATE_LIMIT_PROPERTY,
+  };
+
+  private AutonSweep() {}
+
+  /**
+   * Runs the sweep.
+   *
+   * @param args {@code key=value} pairs: one comma-separated list of values per grid axis (named after the
+   *        {@link AutonParameters} system properties without the "auton." prefix), {@code jobs} for the number of
+   *        simulations to run at once, {@code routines} for the routines to run, and {@code report} for the file to
+   *        write the report to
+   */
+  public static void main(String... args) throws IOException, InterruptedException, ExecutionException {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Expected key=value, got: " + arg);
+      }
+      options.put(arg.substring(0, separator), arg.substring(separator + 1));
+    }
+
+    List<AutonParameters> grid = buildGrid(options);
+    int jobs = Integer.parseInt(options.getOrDefault("jobs",
+        Integer.toString(Runtime.getRuntime().availableProcessors())));
+    String[] routines = options.containsKey("routines") ? options.get("routines").split(",") : new String[0];
+    Path workDir = Files.createTempDirectory("auton-sweep");
+
+    System.out.printf("Simulating %d parameter sets on %d processes%n", grid.size(), jobs);
+    ExecutorService executor = Executors.newFixedThreadPool(jobs);
+    List<Future<List<AutonSimulation.Result>>> futures = new ArrayList<>();
+    for (int i = 0; i < grid.size(); i++) {
+      AutonParameters parameters = grid.get(i);
+      Path resultsFile = workDir.resolve("run-" + i + ".tsv");
+      futures.add(executor.submit(() -> simulate(parameters, routines, resultsFile)));
+    }
+    executor.shutdown();
+
+    Map<String, List<Run>> runsByRoutine = new LinkedHashMap<>();
+    for (int i = 0; i < grid.size(); i++) {
+      for (AutonSimulation.Result result : futures.get(i).get()) {
+        runsByRoutine.computeIfAbsent(result.name, name -> new ArrayList<>()).add(new Run(grid.get(i), result));
+      }
+    }
+
+    List<String> report = new ArrayList<>();
+    for (Map.Entry<String, List<Run>> routine : runsByRoutine.entrySet()) {
+      List<Run> runs = routine.getValue();
+      runs.sort(RANKING);
+      report.add(routine.getKey() + ":");
+      for (int rank = 0; rank < runs.size(); rank++) {
+        Run run = runs.get(rank);
+        report.add(String.format("  %3d. %s -> finished at %.2f s, drove %.3f m, peak outputs (%.2f, %.2f)",
+            rank + 1, run.parameters, run.result.finishedAt, run.distance(),
+            run.result.peakLeftOutput, run.result.peakRightOutput));
+      }
+    }
+    report.forEach(System.out::println);
+
+    if (options.containsKey("report")) {
+      Path reportFile = Paths.get(options.get("report"));
+      Files.createDirectories(reportFile.toAbsolutePath().getParent());
+      try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportFile))) {
+        report.forEach(writer::println);
+      }
+      System.out.println("Wrote " + reportFile);
+    }
+  }
+
+  /**
+   * Returns every combination of the values given for each axis.
+   */
+  private static List<AutonParameters> buildGrid(Map<String, String> options) {
+    List<Map<String, Double>> points = new ArrayList<>();
+    points.add(new HashMap<>());
+    for (String axis : AXES) {
+      String values = options.get(axis.substring("auton.".length()));
+      if (values == null) {
+        continue;
+      }
+      List<Map<String, Double>> expanded = new ArrayList<>();
+      for (Map<String, Double> point : points) {
+        for (String value : values.split(",")) {
+          Map<String, Double> next = new HashMap<>(point);
+          next.put(axis, Double.parseDouble(value.trim()));
+          expanded.add(next);
+        }
+      }
+      points = expanded;
+    }
+
+    List<AutonParameters> grid = new ArrayList<>();
+    AutonParameters defaults = AutonParameters.DEFAULT;
+    for (Map<String, Double> point : points) {
+      grid.add(new AutonParameters(
+          point.getOrDefault(AutonParameters.SIMPLE_AUTON_SPEED_PROPERTY, defaults.simpleAutonSpeed),
+          point.getOrDefault(AutonParameters.SIMPLE_AUTON_RUNTIME_PROPERTY, defaults.simpleAutonRuntime),
+          point.getOrDefault(AutonParameters.MEDIUM_AUTON_OUTTAKE_RUNTIME_PROPERTY,
+              defaults.mediumAutonOuttakeRuntime),
+          point.getOrDefault(AutonParameters.ACCELERATION_RATE_LIMIT_PROPERTY, defaults.accelerationRateLimit)));
+    }
+    return grid;
+  }
+
+  /**
+   * Runs {@link AutonSimulation} in a new JVM with the given parameters, and reads back its results.
+   */
+  private static List<AutonSimulation.Result> simulate(AutonParameters parameters, String[] routines,
+      Path resultsFile) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+    command.add("-D" + AutonParameters.SIMPLE_AUTON_SPEED_PROPERTY + "=" + parameters.simpleAutonSpeed);
+    command.add("-D" + AutonParameters.SIMPLE_AUTON_RUNTIME_PROPERTY + "=" + parameters.simpleAutonRuntime);
+    command.add("-D" + AutonParameters.MEDIUM_AUTON_OUTTAKE_RUNTIME_PROPERTY + "="
+        + parameters.mediumAutonOuttakeRuntime);
+    command.add("-D" + AutonParameters.ACCELERATION_RATE_LIMIT_PROPERTY + "=" + parameters.accelerationRateLimit);
+    command.add("-D" + AutonSimulation.RESULTS_PROPERTY + "=" + resultsFile);
+    command.add(AutonSimulation.class.getName());
+    for (String routine : routines) {
+      command.add(routine);
+    }
+
+    // The simulations print a lot of vendor library noise, so only their exit code is kept.
+    Process process = new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(new File(resultsFile + ".log"))
+        .start();
+    int exitCode = process.waitFor();
+    if (exitCode != 0) {
+      throw new IOException("Simulation with " + parameters + " exited with code " + exitCode
+          + ", see " + resultsFile + ".log");
+    }
+
+    List<AutonSimulation.Result> results = new ArrayList<>();
+    for (String row : Files.readAllLines(resultsFile)) {
+      results.add(AutonSimulation.Result.fromRow(row));
+    }
+    return results;
+  }
+
+  private static final Comparator<Run> RANKING =
+      Comparator.<Run, Boolean>comparing(run -> Double.isNaN(run.result.finishedAt))
+          .thenComparing(Comparator.comparingDouble(Run::distance).reversed())
+          .thenComparingDouble(run -> run.result.finishedAt);
+
+  /**
+   * One routine simulated with one set of parameters.
+   */
+  private static final class Run {
+    final AutonParameters parameters;
+    final AutonSimulation.Result result;
+
+    Run(AutonParameters parameters, AutonSimulation.Result result) {
+      this.parameters = parameters;
+      this.result = result;
+    }
+
+    double distance() {
+      return result.pose.getTranslation().getNorm();
+    }
+  }
+}
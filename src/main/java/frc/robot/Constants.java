@@ -22,6 +22,11 @@ public final class Constants {
     public static final double SIMPLE_AUTON_SPEED = 0.7;
     public static final double SIMPLE_AUTON_RUNTIME = 3.0;
     public static final double MEDIUM_AUTON_OUTTAKE_RUNTIME = 3.0;
+    public static final double DRIVE_DISTANCE_METERS = 2.0; // PLACEHOLDER
+
+    // The trajectories generated by `./gradlew generateTrajectories`, relative to the deploy directory.
+    public static final String TRAJECTORY_DIRECTORY = "trajectories";
+    public static final String DRIVE_OFF_TARMAC_TRAJECTORY = "DriveOffTarmac.traj";
   }
 
   /**
@@ -53,6 +58,8 @@ public final class Constants {
       public static final int CLIMBER_DOWN = 5;
       public static final int CLIMBER_RETRACT = 11;
       public static final int CLIMBER_EXTEND = 12;
+      // On the base of the operator's joystick, where nothing else is bound. Homing runs only while it is held.
+      public static final int CLIMBER_HOME = 10;
     }
   }
 
@@ -64,6 +71,16 @@ public final class Constants {
     public static final double SLOWDOWN_PERCENT2 = 0.5;
 
     public static final double ACCELERATION_RATE_LIMIT = 2.1;
+    public static final double DECELERATION_RATE_LIMIT = 4.0; // PLACEHOLDER
+    public static final double JERK_LIMIT = Double.POSITIVE_INFINITY; // PLACEHOLDER, none
+
+    // Sends the drive outputs from their own Notifier instead of from the robot loop.
+    public static final boolean HIGH_RATE_OUTPUT_ENABLED = false;
+    public static final double HIGH_RATE_OUTPUT_PERIOD = 0.004; // 250 Hz, PLACEHOLDER
+
+    // The odometry runs on its own Notifier, and keeps the poses of the last second for latency compensation.
+    public static final double ODOMETRY_PERIOD = 0.005; // 200 Hz, PLACEHOLDER
+    public static final int POSE_HISTORY_SIZE = 200;
 
     public static final class DriveMotorCANIDs {
       public static final int LEFT_FRONT = 42;
@@ -75,15 +92,62 @@ public final class Constants {
     public static final int CURRENT_LIMIT = 60;
     public static final int TRIGGER_THRESHOLD = 80;
     public static final double TRIGGER_THRESHOLD_TIME = 0.5;
+
+    public static final double ENCODER_COUNTS_PER_REVOLUTION = 2048;
+    public static final double GEAR_RATIO = 10.71; // PLACEHOLDER
+    public static final double WHEEL_DIAMETER_METERS = 0.1524; // PLACEHOLDER
+    public static final double TRACK_WIDTH_METERS = 0.56; // PLACEHOLDER
+
+    public static final double MASS_KG = 50.0; // PLACEHOLDER
+    public static final double MOMENT_OF_INERTIA = 6.0; // PLACEHOLDER, in kg * m^2
+
+    // Feedforward gains from drive characterization, per side.
+    public static final double FEEDFORWARD_KS = 0.6; // PLACEHOLDER, in V
+    public static final double FEEDFORWARD_KV = 2.3; // PLACEHOLDER, in V * s / m
+    public static final double FEEDFORWARD_KA = 0.3; // PLACEHOLDER, in V * s^2 / m
+
+    // Trajectory generation defaults, used when a path file does not set its own limits.
+    public static final double TRAJECTORY_MAX_VELOCITY = 2.0; // PLACEHOLDER, in m/s
+    public static final double TRAJECTORY_MAX_ACCELERATION = 1.5; // PLACEHOLDER, in m/s^2
+    public static final double TRAJECTORY_MAX_VOLTAGE = 10.0;
+
+    // Runs the drive in TalonFX Velocity mode, where a full stick is MAX_VELOCITY, instead of in PercentOutput.
+    public static final boolean VELOCITY_CONTROL_ENABLED = false;
+    public static final double MAX_VELOCITY_METERS_PER_SECOND = 4.0; // PLACEHOLDER
+    public static final int VELOCITY_PID_SLOT = 0;
+    public static final double VELOCITY_KP = 0.05; // PLACEHOLDER
+    public static final double VELOCITY_KI = 0.0; // PLACEHOLDER
+    public static final double VELOCITY_KD = 0.0; // PLACEHOLDER
+
+    public static final double RAMSETE_B = 2.0;
+    public static final double RAMSETE_ZETA = 0.7;
   }
 
   /**
    * Stores constants related to the Intake.
    */
   public static final class IntakeConstants {
+    // Whether the intake and the pneumatics that drive it are on the robot. Off until they are fitted, since every
+    // value below is still a placeholder.
+    public static final boolean ENABLED = false;
+
     public static final double SPEED = 1.0; // PLACEHOLDER
 
+    // The longest a stage of an extension or retraction may take. Stages normally end as soon as the cylinder is
+    // detected to have finished moving, from a limit switch or the pressure dip on the PH.
     public static final double SOLENOID_DELAY_TIME = 1.0; // PLACEHOLDER
+    public static final int PRESSURE_SENSOR_CHANNEL = 0;
+    public static final double ACTUATION_DIP_THRESHOLD = 1.0; // PLACEHOLDER, in psi
+    public static final double ACTUATION_RECOVERY_THRESHOLD = 0.5; // PLACEHOLDER, in psi
+    public static final double ACTUATION_SETTLE_TIME = 0.1; // PLACEHOLDER
+
+    // Optional limit switches at the ends of the cylinders' travel, -1 if not fitted. Pressed reads low.
+    public static final class IntakeLimitChannels {
+      public static final int TOP_EXTENDED = -1;
+      public static final int TOP_RETRACTED = -1;
+      public static final int BOTTOM_EXTENDED = -1;
+      public static final int BOTTOM_RETRACTED = -1;
+    }
 
     public static final class IntakeSolenoidChannels {
       public static final int TOP_FORWARD = 0; // PLACEHOLDER
@@ -144,6 +208,36 @@ public final class Constants {
     public static final int TRIGGER_THRESHOLD = 100;
     public static final double TRIGGER_THRESHOLD_TIME = 0.5;
 
+    // Whether to drive the arms independently and keep them level from the roboRIO, instead of following. Off until
+    // the gains below have been tuned on the robot. Under MotionMagic the correction is an arbitrary feedforward,
+    // which each Talon's own position loop partly cancels.
+    public static final boolean SYNCHRONIZED = false;
+    // Percent output of correction per native unit of difference between the arm positions.
+    public static final double SYNC_KP = 0.00002; // PLACEHOLDER
+    // The largest correction, in percent output.
+    public static final double SYNC_MAX_CORRECTION = 0.2; // PLACEHOLDER
+
+    /**
+     * Stores constants related to finding the retracted hard stop of the climber arms.
+     */
+    public static final class ClimberHomingConstants {
+      // Whether to home the climber the first time the robot is enabled. Off until the stall thresholds below have
+      // been measured on the robot; until then the climber is only homed while the operator holds CLIMBER_HOME.
+      public static final boolean HOME_ON_ENABLE = false;
+      // The speed to drive the arms toward the retracted hard stop at, in percent output.
+      public static final double SPEED = 0.15; // PLACEHOLDER
+      // A stall is a filtered stator current above STALL_CURRENT amps with a velocity below STALL_VELOCITY native
+      // units per 100 ms, lasting STALL_DEBOUNCE_TIME seconds.
+      public static final double STALL_CURRENT = 30; // PLACEHOLDER
+      public static final double STALL_VELOCITY = 200; // PLACEHOLDER
+      public static final double STALL_DEBOUNCE_TIME = 0.1; // PLACEHOLDER
+      public static final double CURRENT_FILTER_TIME_CONSTANT = 0.05; // PLACEHOLDER
+      // How long to ignore the current for after starting, while the arms accelerate.
+      public static final double STARTUP_BLANKING_TIME = 0.3; // PLACEHOLDER
+      // Give up homing after this many seconds, e.g. if an arm is jammed.
+      public static final double TIMEOUT = 5.0; // PLACEHOLDER
+    }
+
     public static final class ClimberPositions {
       public static final int RETRACTED = 0;
       public static final int EXTENDED = -170000;
@@ -157,20 +251,111 @@ public final class Constants {
       public static final double kI_LEFT = 0;
       public static final double kI_RIGHT = 0;
 
-      public static final int timeoutMs = 0;
       public static final int kSlotIdx = 0;
       public static final int CURVE_STRENGTH = 0;
+      // Faster moves rack the arms unless they are synchronized; only raise these once the sync gain is tuned.
       public static final int ACCELERATION = 400000;
       public static final int VELOCITY = 400000;
     }
   }
 
+  /**
+   * Stores constants related to configuring motor controllers at boot.
+   */
+  public static final class DeviceConfigConstants {
+    // How long to wait for a controller to answer each configuration request.
+    public static final int TIMEOUT_MS = 50; // PLACEHOLDER
+    // How many times to send and read back each setting before reporting it as failed.
+    public static final int MAX_ATTEMPTS = 3;
+    // How many controllers to configure at once.
+    public static final int THREAD_COUNT = 4; // PLACEHOLDER
+  }
+
+  /**
+   * Stores constants related to warming up the control code while disabled.
+   */
+  public static final class WarmupConstants {
+    // Whether to warm up at all, e.g. to measure the first enabled loop without it.
+    public static final boolean ENABLED = true;
+    // How many times to run every command. Each run calls execute() 10 times.
+    public static final int CYCLES = 2000;
+    // How long to spend warming up in each disabled loop, in seconds.
+    public static final double BUDGET_PER_LOOP = 0.005; // PLACEHOLDER
+  }
+
+  /**
+   * Stores constants related to the high-rate signal log.
+   */
+  public static final class SignalLogConstants {
+    // Off by default, since it speeds up the status frames of every logged motor. Only logs on the robot, never in
+    // simulation or tests.
+    public static final boolean ENABLED = false;
+    // Written to the operating directory, /home/lvuser on the robot, as signals-<boot number>.bin, so that a reboot
+    // does not overwrite the previous log. Only the last MAX_FILES logs are kept.
+    public static final String FILE_PREFIX = "signals-";
+    public static final int MAX_FILES = 10;
+    // The time between two records, in seconds, and the period of the status frames that carry the logged signals.
+    // Faster frames on every logged motor would load the CAN bus too much.
+    public static final double PERIOD = 0.01;
+    public static final int STATUS_FRAME_PERIOD_MS = ENABLED ? 10 : 0;
+    // Followers mirror their leader, so their frames are left at the defaults.
+    public static final int FOLLOWER_STATUS_FRAME_PERIOD_MS = 0;
+    // 5 minutes at 100 Hz, about 6 MB with every channel.
+    public static final int CAPACITY = 30000;
+  }
+
+  /**
+   * Stores constants related to recording driver inputs.
+   */
+  public static final class InputRecordingConstants {
+    // Only used on the real robot; simulations are never recorded.
+    public static final boolean ENABLED = true;
+    // Written to the operating directory, /home/lvuser on the robot, followed by the time and ".bin".
+    public static final String FILE_PREFIX = "inputs-";
+  }
+
+  /**
+   * Stores constants related to the robot-wide power budget.
+   */
+  public static final class PowerConstants {
+    // Off until the battery resistance and the channels below have been measured on the robot.
+    public static final boolean ENABLED = false;
+    public static final int PDH_CAN_ID = 1;
+
+    // The roboRIO browns out at 6.75 V; stay a margin above that.
+    public static final double MINIMUM_VOLTAGE = 7.5; // PLACEHOLDER
+    public static final double BATTERY_RESISTANCE = 0.02; // PLACEHOLDER, in ohms, battery and main wiring
+    public static final double SCALE_RECOVERY_RATE = 2.0; // PLACEHOLDER, per second
+
+    public static final class PdhChannels {
+      public static final int[] DRIVE = {0, 1, 18, 19}; // PLACEHOLDER
+      public static final int[] CLIMBER = {2, 17}; // PLACEHOLDER
+      public static final int[] OUTTAKE = {3, 16}; // PLACEHOLDER
+      public static final int[] COMPRESSOR = {20}; // PLACEHOLDER, the channel that feeds the PH and its compressor
+    }
+  }
+
   /**
    * Stores constants related to the Pneumatics.
    */
   public final class PneumaticsConstants {
+    // Below the minimum pressure the compressor always runs; between it and the maximum it only runs when the robot
+    // is not under high demand, or when the reserve for the next intake cycles needs it.
     public static final double DEFAULT_MIN_PRESSURE = 90.0; // PLACEHOLDER
     public static final double DEFAULT_MAX_PRESSURE = 115.0; // PLACEHOLDER
+    public static final double RUN_HYSTERESIS = 1.0; // PLACEHOLDER
+    public static final double IDLE_RESTART_HYSTERESIS = 10.0; // PLACEHOLDER
+
+    // The air use model: the regulated pressure the solenoids need, and the drop of one solenoid actuation.
+    public static final double WORKING_PRESSURE = 60.0; // PLACEHOLDER
+    public static final double PRESSURE_PER_ACTUATION = 2.0; // PLACEHOLDER, refined while running
+    public static final int ACTUATIONS_PER_INTAKE_CYCLE = 4; // Both solenoids out and back in
+    public static final int RESERVE_INTAKE_CYCLES = 3; // PLACEHOLDER
+
+    // High demand pauses the compressor, e.g. while the battery sags under drive acceleration.
+    public static final double HIGH_DEMAND_VOLTAGE = 11.0; // PLACEHOLDER
+    public static final double DEMAND_HOLD_TIME = 1.0; // PLACEHOLDER
+    public static final double COMPRESSOR_CURRENT = 12.0; // PLACEHOLDER, in amps
   }
 
 }
@@ -0,0 +1,132 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import edu.wpi.first.math.trajectory.constraint.DifferentialDriveVoltageConstraint;
+import frc.robot.Constants.DriveConstants;
+import overclocked.stl.trajectory.TrajectoryWriter;
+
+/**
+ * Generates the autonomous trajectories on the development machine, so that the robot only has to map them. Run
+ * with {@code ./gradlew generateTrajectories}, which also runs before every deploy.
+ *
+ * <p>
+ * Every {@code <name>.path} file in the input directory becomes a {@code <name>.traj} file in the output directory.
+ * A path file has one setting per line, and lines starting with # are comments:
+ *
+ * <pre>
+ * maxVelocity 2.0        # m/s
+ * maxAcceleration 1.5    # m/s^2
+ * reversed false
+ * waypoint 0.0 0.0 0     # x (m), y (m), heading (deg)
+ * waypoint 2.0 0.0 0
+ * </pre>
+ */
+public final class GenerateTrajectories {
+  private GenerateTrajectories() {}
+
+  /**
+   * Generates the trajectories.
+   *
+   * @param args The directory of the path files, and the directory to write the trajectories to
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String... args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: GenerateTrajectories <path directory> <output directory>");
+      System.exit(1);
+    }
+    Path inputDirectory = Paths.get(args[0]);
+    Path outputDirectory = Paths.get(args[1]);
+    Files.createDirectories(outputDirectory);
+
+    List<Path> paths;
+    try (Stream<Path> files = Files.list(inputDirectory)) {
+      paths = files.filter(file -> file.getFileName().toString().endsWith(".path")).sorted()
+          .collect(Collectors.toList());
+    }
+    for (Path path : paths) {
+      String fileName = path.getFileName().toString();
+      String name = fileName.substring(0, fileName.length() - ".path".length());
+      Trajectory trajectory = generate(path);
+      Path output = outputDirectory.resolve(name + ".traj");
+      TrajectoryWriter.write(trajectory, output);
+      System.out.printf("%s: %d samples, %.2f s -> %s%n", name, trajectory.getStates().size(),
+          trajectory.getTotalTimeSeconds(), output);
+    }
+  }
+
+  private static Trajectory generate(Path path) throws IOException {
+    double maxVelocity = DriveConstants.TRAJECTORY_MAX_VELOCITY;
+    double maxAcceleration = DriveConstants.TRAJECTORY_MAX_ACCELERATION;
+    boolean reversed = false;
+    List<Pose2d> waypoints = new ArrayList<>();
+
+    List<String> lines = Files.readAllLines(path);
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i);
+      int comment = line.indexOf('#');
+      if (comment >= 0) {
+        line = line.substring(0, comment);
+      }
+      line = line.trim();
+      if (line.isEmpty()) {
+        continue;
+      }
+      String[] fields = line.split("\\s+");
+      try {
+        switch (fields[0]) {
+          case "maxVelocity":
+            maxVelocity = Double.parseDouble(fields[1]);
+            break;
+          case "maxAcceleration":
+            maxAcceleration = Double.parseDouble(fields[1]);
+            break;
+          case "reversed":
+            reversed = Boolean.parseBoolean(fields[1]);
+            break;
+          case "waypoint":
+            waypoints.add(new Pose2d(Double.parseDouble(fields[1]), Double.parseDouble(fields[2]),
+                Rotation2d.fromDegrees(Double.parseDouble(fields[3]))));
+            break;
+          default:
+            throw new IOException(path + ":" + (i + 1) + ": unknown setting " + fields[0]);
+        }
+      } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+        throw new IOException(path + ":" + (i + 1) + ": cannot parse \"" + line + "\"", e);
+      }
+    }
+    if (waypoints.size() < 2) {
+      throw new IOException(path + " needs at least two waypoints");
+    }
+
+    DifferentialDriveKinematics kinematics = new DifferentialDriveKinematics(DriveConstants.TRACK_WIDTH_METERS);
+    TrajectoryConfig config = new TrajectoryConfig(maxVelocity, maxAcceleration)
+        .setKinematics(kinematics)
+        .addConstraint(new DifferentialDriveVoltageConstraint(
+            new SimpleMotorFeedforward(DriveConstants.FEEDFORWARD_KS, DriveConstants.FEEDFORWARD_KV,
+                DriveConstants.FEEDFORWARD_KA),
+            kinematics,
+            DriveConstants.TRAJECTORY_MAX_VOLTAGE))
+        .setReversed(reversed);
+    return TrajectoryGenerator.generateTrajectory(waypoints, config);
+  }
+}
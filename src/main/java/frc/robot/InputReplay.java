@@ -0,0 +1,133 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import overclocked.stl.io.InputPlayback;
+import overclocked.stl.io.InputRecorder;
+
+/**
+ * Replays a driver input recording made by the {@link InputRecorder} through the robot code in simulation, as fast
+ * as the CPU allows.
+ *
+ * <p>
+ * Every recorded loop is run once, with the recorded inputs and robot mode, on a paused and stepped HAL clock, so a
+ * replay of the same recording always produces the same sequence of motor commands. The runner prints a checksum of
+ * that sequence and the wall-clock time of each loop, so behavior and loop time can be compared between versions of
+ * the code. Run it with {@code ./gradlew replayInputs -Precording=inputs-1650000000000.bin}, adding
+ * {@code -Ptrace=trace.csv} to write the motor commands of every loop.
+ */
+public final class InputReplay {
+  private InputReplay() {}
+
+  /**
+   * Replays a recording.
+   *
+   * @param args The recording, and optionally the CSV file to write the motor commands to
+   */
+  public static void main(String... args) throws IOException, InterruptedException {
+    if (args.length < 1) {
+      System.err.println("Usage: InputReplay <recording> [trace.csv]");
+      System.exit(1);
+    }
+
+    Robot robot = AutonSimulation.startRobot(AutonParameters.DEFAULT);
+    RobotContainer container = robot.getRobotContainer();
+    InputPlayback playback = new InputPlayback(new File(args[0]));
+    PrintWriter trace = args.length > 1 ? new PrintWriter(Files.newBufferedWriter(Paths.get(args[1]))) : null;
+    if (trace != null) {
+      trace.println("Loop,Mode,Left Drive,Right Drive,Climber,Outtake");
+    }
+
+    int loopCount = playback.getLastLoop() + 1;
+    long[] loopTimes = new long[loopCount];
+    CRC32 checksum = new CRC32();
+    ByteBuffer outputs = ByteBuffer.allocate(4 * Double.BYTES);
+    int lastMode = 0;
+    for (int loop = 0; loop < loopCount; loop++) {
+      int mode = playback.apply(loop);
+      boolean modeChanged = mode != lastMode || loop == 0;
+      if (modeChanged) {
+        AutonSimulation.setMode(
+            (mode & InputRecorder.MODE_ENABLED) != 0,
+            (mode & InputRecorder.MODE_AUTONOMOUS) != 0,
+            (mode & InputRecorder.MODE_TEST) != 0);
+      }
+
+      SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+      long start = System.nanoTime();
+      runLoop(robot, mode, modeChanged);
+      loopTimes[loop] = System.nanoTime() - start;
+      lastMode = mode;
+
+      outputs.clear();
+      outputs.putDouble(container.getDriveBase().getLeftOutput());
+      outputs.putDouble(container.getDriveBase().getRightOutput());
+      outputs.putDouble(container.getClimber().getSpeed());
+      outputs.putDouble(container.getOuttake().getSpeed());
+      checksum.update(outputs.array());
+      if (trace != null) {
+        trace.printf("%d,%d,%f,%f,%f,%f%n", loop, mode, outputs.getDouble(0), outputs.getDouble(8),
+            outputs.getDouble(16), outputs.getDouble(24));
+      }
+    }
+    playback.stop();
+    if (trace != null) {
+      trace.close();
+    }
+
+    Arrays.sort(loopTimes);
+    System.out.printf("Replayed %d loops, motor command checksum %08x%n", loopCount, checksum.getValue());
+    System.out.printf("Loop time p50 %d us, p99 %d us, max %d us%n",
+        loopTimes[(loopCount - 1) / 2] / 1000, loopTimes[(loopCount - 1) * 99 / 100] / 1000,
+        loopTimes[loopCount - 1] / 1000);
+
+    // Vendor libraries keep non-daemon threads running, so exit explicitly.
+    System.exit(0);
+  }
+
+  /**
+   * Runs one loop the way {@link TimedRobot} does: the init() of the mode if it just changed, the mode's periodic(),
+   * then robotPeriodic().
+   */
+  private static void runLoop(Robot robot, int mode, boolean modeChanged) {
+    boolean enabled = (mode & InputRecorder.MODE_ENABLED) != 0;
+    boolean autonomous = (mode & InputRecorder.MODE_AUTONOMOUS) != 0;
+    boolean test = (mode & InputRecorder.MODE_TEST) != 0;
+
+    if (!enabled) {
+      if (modeChanged) {
+        robot.disabledInit();
+      }
+      robot.disabledPeriodic();
+    } else if (autonomous) {
+      if (modeChanged) {
+        robot.autonomousInit();
+      }
+      robot.autonomousPeriodic();
+    } else if (test) {
+      if (modeChanged) {
+        robot.testInit();
+      }
+      robot.testPeriodic();
+    } else {
+      if (modeChanged) {
+        robot.teleopInit();
+      }
+      robot.teleopPeriodic();
+    }
+    robot.robotPeriodic();
+  }
+}
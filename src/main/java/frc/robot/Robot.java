@@ -4,9 +4,31 @@
 
 package frc.robot;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.DeviceConfigConstants;
+import frc.robot.Constants.InputRecordingConstants;
+import frc.robot.Constants.SignalLogConstants;
+import frc.robot.Constants.WarmupConstants;
+import overclocked.stl.command.CommandWarmup;
+import overclocked.stl.config.DeviceConfigurator;
+import overclocked.stl.io.InputRecorder;
+import overclocked.stl.logging.SignalLogger;
+import overclocked.stl.power.PowerManager;
+import overclocked.stl.profiling.LoopProfiler;
+import overclocked.stl.sensors.SensorSnapshotManager;
+import overclocked.stl.telemetry.TelemetryRegistry;
+import overclocked.stl.telemetry.TelemetryRegistry.BooleanEntry;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to each mode, as
@@ -18,13 +40,83 @@ public class Robot extends TimedRobot {
 
   private RobotContainer robotContainer;
 
+  private LoopProfiler loopProfiler;
+
+  private TelemetryRegistry telemetry;
+
+  private SensorSnapshotManager sensorSnapshots;
+
+  private InputRecorder inputRecorder;
+
+  // Null if the power budget is disabled.
+  private PowerManager powerManager;
+
+  private CommandWarmup warmup;
+
+  private BooleanEntry warmupDoneEntry;
+
+  private final AutonParameters autonParameters;
+
+  /**
+   * Creates the robot with the autonomous routines built from the values in {@link Constants}.
+   */
+  public Robot() {
+    this(AutonParameters.DEFAULT);
+  }
+
+  /**
+   * Creates the robot with the autonomous routines built from the given parameters. Used by the simulation harnesses.
+   *
+   * @param autonParameters The values to build the autonomous routines from
+   */
+  Robot(AutonParameters autonParameters) {
+    this.autonParameters = autonParameters;
+  }
+
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
    */
   @Override
   public void robotInit() {
-    robotContainer = new RobotContainer();
+    loopProfiler = LoopProfiler.getInstance();
+    telemetry = TelemetryRegistry.getInstance();
+    sensorSnapshots = SensorSnapshotManager.getInstance();
+    inputRecorder = InputRecorder.getInstance();
+
+    // The subsystems submit their motor controller configurations as they are created, and they are all sent at
+    // once here, after the constructors are done with the controllers, so that every controller is configured before
+    // the first loop.
+    DeviceConfigurator deviceConfigurator = DeviceConfigurator.getInstance();
+    deviceConfigurator.setPolicy(
+        DeviceConfigConstants.THREAD_COUNT,
+        DeviceConfigConstants.TIMEOUT_MS,
+        DeviceConfigConstants.MAX_ATTEMPTS);
+    robotContainer = new RobotContainer(autonParameters);
+    try {
+      DeviceConfigurator.Report report = deviceConfigurator.awaitAll();
+      if (report.succeeded()) {
+        System.out.println(report);
+      } else {
+        DriverStation.reportError(report.toString(), false);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    // Every subsystem has added its signals by now. A simulation would write a full-size log to the project directory
+    // on every run.
+    if (SignalLogConstants.ENABLED && isReal()) {
+      SignalLogger.getInstance().start(
+          nextSignalLogFile(Filesystem.getOperatingDirectory()),
+          SignalLogConstants.CAPACITY,
+          SignalLogConstants.PERIOD);
+    }
+
+    powerManager = robotContainer.getPowerManager();
+
+    warmup = new CommandWarmup(robotContainer.getWarmupCommands(), WarmupConstants.CYCLES);
+    warmupDoneEntry = telemetry.addBoolean("Warm-up Done");
   }
 
   /**
@@ -37,20 +129,52 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
+    loopProfiler.startLoop();
+    sensorSnapshots.updateAll();
+    inputRecorder.recordFrame();
     CommandScheduler.getInstance().run();
+    if (powerManager != null) {
+      powerManager.update();
+    }
+    loopProfiler.endLoop();
+    telemetry.flush();
   }
 
   @Override
   public void disabledInit() {
     CommandScheduler.getInstance().cancelAll();
+    inputRecorder.flush();
   }
 
+  /**
+   * Warms up the match commands a little every loop until they have been compiled, so that the first enabled loops
+   * are as fast as the rest. Compare "Loop Profile/First enabled loop (us)" with WarmupConstants.ENABLED off to see
+   * the difference.
+   */
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    if (WarmupConstants.ENABLED) {
+      warmup.run(WarmupConstants.BUDGET_PER_LOOP);
+      warmupDoneEntry.set(warmup.isDone());
+    }
+  }
 
   @Override
   public void autonomousInit() {
-    autonomousCommand = robotContainer.getAutonomousCommand();
+    loopProfiler.markEnabled();
+    startInputRecording();
+    startAutonomous(robotContainer.getAutonomousCommand());
+    robotContainer.homeClimberIfNeeded();
+  }
+
+  /**
+   * Sets the auton default commands and schedules the given autonomous command. Also used by the headless
+   * {@link AutonSimulation} to run a specific routine.
+   *
+   * @param command The autonomous command to run, or null to run none
+   */
+  void startAutonomous(Command command) {
+    autonomousCommand = command;
 
     robotContainer.setAutonDefaultCommands();
 
@@ -60,16 +184,60 @@ public class Robot extends TimedRobot {
     }
   }
 
+  /**
+   * Starts recording the driver inputs into a new file the first time the robot is enabled on the real robot, when
+   * the driver station has set the clock. The recording can be replayed with {@link InputReplay}.
+   */
+  private void startInputRecording() {
+    if (InputRecordingConstants.ENABLED && RobotBase.isReal() && !inputRecorder.isRecording()) {
+      inputRecorder.start(new File(Filesystem.getOperatingDirectory(),
+          InputRecordingConstants.FILE_PREFIX + System.currentTimeMillis() + ".bin"));
+    }
+  }
+
+  /**
+   * Returns the signal log file for this boot, numbered one past the newest log in the directory, and deletes the
+   * oldest logs so that at most SignalLogConstants.MAX_FILES remain. The number does not depend on the clock, which
+   * the driver station has not set yet at boot.
+   */
+  private static File nextSignalLogFile(File directory) {
+    String prefix = SignalLogConstants.FILE_PREFIX;
+    File[] logs = directory.listFiles((dir, name) -> name.matches(Pattern.quote(prefix) + "\\d+\\.bin"));
+    List<Integer> numbers = new ArrayList<>();
+    if (logs != null) {
+      for (File log : logs) {
+        String name = log.getName();
+        numbers.add(Integer.parseInt(name.substring(prefix.length(), name.length() - ".bin".length())));
+      }
+    }
+    Collections.sort(numbers);
+    int next = numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1) + 1;
+    for (int i = 0; i < numbers.size() - (SignalLogConstants.MAX_FILES - 1); i++) {
+      new File(directory, prefix + numbers.get(i) + ".bin").delete();
+    }
+    return new File(directory, prefix + next + ".bin");
+  }
+
+  /**
+   * Returns the {@link RobotContainer}, once robotInit() has run.
+   */
+  RobotContainer getRobotContainer() {
+    return robotContainer;
+  }
+
   @Override
   public void autonomousPeriodic() {}
 
   @Override
   public void teleopInit() {
+    loopProfiler.markEnabled();
+    startInputRecording();
     if (autonomousCommand != null) {
       autonomousCommand.cancel();
     }
 
     robotContainer.setTeleopDefaultCommands();
+    robotContainer.homeClimberIfNeeded();
   }
 
 
@@ -4,6 +4,18 @@
 
 package frc.robot;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.PowerDistribution.ModuleType;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -12,6 +24,7 @@ import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
 import frc.robot.Constants.AutonConstants;
 import frc.robot.Constants.ClimberConstants;
+import frc.robot.Constants.ClimberConstants.ClimberHomingConstants;
 import frc.robot.Constants.ClimberConstants.ClimberMotorCANIDs;
 import frc.robot.Constants.ClimberConstants.ClimberPositions;
 import frc.robot.Constants.DriveConstants;
@@ -20,24 +33,37 @@ import frc.robot.Constants.IOConstants;
 import frc.robot.Constants.IOConstants.DriverAxes;
 import frc.robot.Constants.IOConstants.DriverButtons;
 import frc.robot.Constants.IOConstants.OperatorButtons;
+import frc.robot.Constants.IntakeConstants;
+import frc.robot.Constants.IntakeConstants.IntakeSolenoidChannels;
 
 import frc.robot.Constants.OuttakeConstants;
 import frc.robot.Constants.OuttakeConstants.OuttakeMotorCANIDs;
+import frc.robot.Constants.PowerConstants;
+import frc.robot.Constants.PowerConstants.PdhChannels;
 
+import frc.robot.commands.climber.HomeClimberCommand;
 import frc.robot.commands.climber.RunClimberCommand;
 import frc.robot.commands.climber.RunClimberToPositionCommand;
+import frc.robot.commands.drive.DriveDistanceCommand;
+import frc.robot.commands.drive.FollowTrajectoryCommand;
 import frc.robot.commands.drive.StopDriveCommand;
 import frc.robot.commands.drive.StraightDriveCommand;
 import frc.robot.commands.drive.TankDriveCommand;
+import frc.robot.commands.intake.ExtendIntakeCommand;
+import frc.robot.commands.intake.SpinIntakeCommand;
 
 import frc.robot.commands.outtake.RunOuttakeCommand;
 
 import frc.robot.subsystems.Climber;
 import frc.robot.subsystems.DriveBase;
+import frc.robot.subsystems.Intake;
 import frc.robot.subsystems.Outtake;
+import frc.robot.subsystems.Pneumatics;
 
 import overclocked.stl.command.TimedCommand;
 import overclocked.stl.io.OverclockedController;
+import overclocked.stl.power.PowerManager;
+import overclocked.stl.trajectory.MappedTrajectory;
 
 /**
  * This class is where the bulk of the robot should be declared. Since Command-based is a "declarative" paradigm, very
@@ -68,85 +94,278 @@ public class RobotContainer {
   private final JoystickButton climberDownButton = operatorJoystick.button(OperatorButtons.CLIMBER_DOWN);
   private final JoystickButton climberRetractButton = operatorJoystick.button(OperatorButtons.CLIMBER_RETRACT);
   private final JoystickButton climberExtendButton = operatorJoystick.button(OperatorButtons.CLIMBER_EXTEND);
+  private final JoystickButton climberHomeButton = operatorJoystick.button(OperatorButtons.CLIMBER_HOME);
+
+  // Only created if IntakeConstants.ENABLED is set.
+  private Intake intake;
+  private Pneumatics pneumatics;
+
+  // Only created if PowerConstants.ENABLED is set.
+  private PowerManager powerManager;
+
+  // Every command that can run during a match, so that Robot can warm them up while disabled.
+  private final List<Command> warmupCommands = new ArrayList<>();
+
+  private final Command teleopDriveCommand = warmedUp(
+      new TankDriveCommand(
+          driveBase,
+          driverJoystick.axis(DriverAxes.LEFT),
+          driverJoystick.axis(DriverAxes.RIGHT)));
+  private final Command autonDriveCommand = warmedUp(new StopDriveCommand(driveBase));
+  private final Command homeClimberCommand =
+      warmedUp(new HomeClimberCommand(climber).withTimeout(ClimberHomingConstants.TIMEOUT));
 
   /**
    * The container for the robot. Contains subsystems, OI devices, and commands.
    */
   public RobotContainer() {
+    this(AutonParameters.DEFAULT);
+  }
+
+  /**
+   * The container for the robot, with the autonomous routines built from the given parameters. Used by the simulation
+   * harnesses to tune the autonomous routines.
+   *
+   * @param autonParameters The values to build the autonomous routines from
+   */
+  RobotContainer(AutonParameters autonParameters) {
+    driveBase.setAccelerationRateLimit(autonParameters.accelerationRateLimit);
     configureButtonBindings();
-    configureSmartDash();
+    configureSmartDash(autonParameters);
+    if (IntakeConstants.ENABLED) {
+      configureIntake();
+    }
+    if (PowerConstants.ENABLED) {
+      configurePowerBudget();
+    }
+  }
+
+  /**
+   * Creates the intake and the pneumatics, and binds the intake button. The compressor is told about every solenoid
+   * the intake moves, so that it keeps enough air for the next cycles, and holds off filling up while the power
+   * budget is limiting the mechanisms.
+   */
+  private void configureIntake() {
+    pneumatics = new Pneumatics();
+    intake = new Intake(
+        IntakeConstants.MOTOR_ID,
+        IntakeSolenoidChannels.TOP_FORWARD,
+        IntakeSolenoidChannels.TOP_REVERSE,
+        IntakeSolenoidChannels.BOTTOM_FORWARD,
+        IntakeSolenoidChannels.BOTTOM_REVERSE);
+    intake.setActuationListener(pneumatics::recordActuation);
+    pneumatics.setHighDemandSupplier(() -> powerManager != null && powerManager.isLimiting());
+
+    // Extends and spins while held; the rollers only start once the intake is out.
+    JoystickButton intakeButton = operatorJoystick.button(OperatorButtons.INTAKE);
+    intakeButton.whenPressed(warmedUp(new ExtendIntakeCommand(intake)));
+    intakeButton.whileHeld(warmedUp(new SpinIntakeCommand(intake, IntakeConstants.SPEED)));
+    intakeButton.whenReleased(warmedUp(intake.getRetractionCommand()));
+  }
+
+  /**
+   * Puts every subsystem under the power budget, from the most to the least important.
+   */
+  private void configurePowerBudget() {
+    powerManager = new PowerManager(
+        new PowerDistribution(PowerConstants.PDH_CAN_ID, ModuleType.kRev),
+        PowerConstants.MINIMUM_VOLTAGE,
+        PowerConstants.BATTERY_RESISTANCE,
+        PowerConstants.SCALE_RECOVERY_RATE);
+    powerManager.addLoad("Drive", PdhChannels.DRIVE, driveBase::getPredictedCurrent, driveBase::setOutputScale);
+    powerManager.addLoad("Climber", PdhChannels.CLIMBER, climber::getPredictedCurrent, climber::setOutputScale);
+    powerManager.addLoad("Outtake", PdhChannels.OUTTAKE, outtake::getPredictedCurrent, outtake::setOutputScale);
+    if (pneumatics != null) {
+      powerManager.addLoad("Compressor", PdhChannels.COMPRESSOR,
+          pneumatics::getPredictedCurrent, pneumatics::setOutputScale);
+    }
   }
 
   /**
    * Use this method to define your button->command mappings.
    */
   private void configureButtonBindings() {
-    outtakeButton.whileHeld(new RunOuttakeCommand(outtake, OuttakeConstants.SPEED));
+    outtakeButton.whileHeld(warmedUp(new RunOuttakeCommand(outtake, OuttakeConstants.SPEED)));
 
-    climberUpButton.whileHeld(new RunClimberCommand(climber, -ClimberConstants.SPEED));
-    climberDownButton.whileHeld(new RunClimberCommand(climber, ClimberConstants.SPEED));
+    climberUpButton.whileHeld(warmedUp(new RunClimberCommand(climber, -ClimberConstants.SPEED)));
+    climberDownButton.whileHeld(warmedUp(new RunClimberCommand(climber, ClimberConstants.SPEED)));
 
-    climberRetractButton.whileHeld(new RunClimberToPositionCommand(climber, ClimberPositions.RETRACTED));
-    climberExtendButton.whileHeld(new RunClimberToPositionCommand(climber, ClimberPositions.EXTENDED));
+    climberRetractButton.whileHeld(warmedUp(new RunClimberToPositionCommand(climber, ClimberPositions.RETRACTED)));
+    climberExtendButton.whileHeld(warmedUp(new RunClimberToPositionCommand(climber, ClimberPositions.EXTENDED)));
+    // Held rather than pressed, so that letting go stops the arms if homing misses the stall.
+    climberHomeButton.whenHeld(homeClimberCommand);
 
-    slowdownButton1.whileHeld(new TankDriveCommand(
+    slowdownButton1.whileHeld(warmedUp(new TankDriveCommand(
         driveBase,
-        () -> DriveConstants.SLOWDOWN_PERCENT1 * driverJoystick.getRawAxis(DriverAxes.LEFT),
-        () -> DriveConstants.SLOWDOWN_PERCENT1 * driverJoystick.getRawAxis(DriverAxes.RIGHT)));
+        driverJoystick.axis(DriverAxes.LEFT, speed -> DriveConstants.SLOWDOWN_PERCENT1 * speed),
+        driverJoystick.axis(DriverAxes.RIGHT, speed -> DriveConstants.SLOWDOWN_PERCENT1 * speed))));
 
-    slowdownButton2.whileHeld(new TankDriveCommand(
+    slowdownButton2.whileHeld(warmedUp(new TankDriveCommand(
         driveBase,
-        () -> DriveConstants.SLOWDOWN_PERCENT2 * driverJoystick.getRawAxis(DriverAxes.LEFT),
-        () -> DriveConstants.SLOWDOWN_PERCENT2 * driverJoystick.getRawAxis(DriverAxes.RIGHT)));
-
-  }
-
-  // A simple auto routine that drives in a straight line.
-  private final Command driveAuton =
-      new TimedCommand(
-          AutonConstants.SIMPLE_AUTON_RUNTIME,
-          new StraightDriveCommand(
-              driveBase,
-              AutonConstants.SIMPLE_AUTON_SPEED));
-
-  // A simple auto routine that shoots a ball.
-  private final Command shootAuton =
-      new TimedCommand(
-          AutonConstants.MEDIUM_AUTON_OUTTAKE_RUNTIME,
-          new RunOuttakeCommand(
-              outtake,
-              OuttakeConstants.SPEED));
-
-  // A medium auto routine that drives in a straight line and shoots a ball.
-  private final Command driveShootAuton =
-      new SequentialCommandGroup(
-          new TimedCommand(
-              AutonConstants.MEDIUM_AUTON_OUTTAKE_RUNTIME,
-              new RunOuttakeCommand(outtake, -OuttakeConstants.SPEED)),
-          new TimedCommand(
-              AutonConstants.SIMPLE_AUTON_RUNTIME,
-              new StraightDriveCommand(
-                  driveBase,
-                  AutonConstants.SIMPLE_AUTON_SPEED)));
-
-// An auto routine that does nothing.
-  private final Command doNothingAuton = null;
+        driverJoystick.axis(DriverAxes.LEFT, speed -> DriveConstants.SLOWDOWN_PERCENT2 * speed),
+        driverJoystick.axis(DriverAxes.RIGHT, speed -> DriveConstants.SLOWDOWN_PERCENT2 * speed))));
 
+  }
 
   private final SendableChooser<Command> autonChooser = new SendableChooser<>();
+  private final Map<String, Command> autonRoutines = new LinkedHashMap<>();
 
   /**
    * Use this method to run tasks that configure sendables and other smartdashboard items.
    */
-  private void configureSmartDash() {
-    autonChooser.setDefaultOption("Drive And Shoot Auton", driveShootAuton);
-    autonChooser.addOption("Drive Auton", driveAuton);
-    autonChooser.addOption("Shooting Auton", shootAuton);
-    autonChooser.addOption("Do Nothing Auton", doNothingAuton);
+  private void configureSmartDash(AutonParameters parameters) {
+    // A simple auto routine that drives in a straight line.
+    Command driveAuton =
+        new TimedCommand(
+            parameters.simpleAutonRuntime,
+            new StraightDriveCommand(
+                driveBase,
+                parameters.simpleAutonSpeed));
+
+    // A simple auto routine that shoots a ball.
+    Command shootAuton =
+        new TimedCommand(
+            parameters.mediumAutonOuttakeRuntime,
+            new RunOuttakeCommand(
+                outtake,
+                OuttakeConstants.SPEED));
+
+    // A medium auto routine that drives in a straight line and shoots a ball.
+    Command driveShootAuton =
+        new SequentialCommandGroup(
+            new TimedCommand(
+                parameters.mediumAutonOuttakeRuntime,
+                new RunOuttakeCommand(outtake, -OuttakeConstants.SPEED)),
+            new TimedCommand(
+                parameters.simpleAutonRuntime,
+                new StraightDriveCommand(
+                    driveBase,
+                    parameters.simpleAutonSpeed)));
+
+    // A simple auto routine that drives in a straight line for a distance measured by the odometry.
+    Command driveDistanceAuton =
+        new DriveDistanceCommand(
+            driveBase,
+            parameters.simpleAutonSpeed,
+            AutonConstants.DRIVE_DISTANCE_METERS);
+
+    // An auto routine that follows a pre-generated trajectory off the tarmac.
+    MappedTrajectory driveOffTarmac = loadTrajectory(AutonConstants.DRIVE_OFF_TARMAC_TRAJECTORY);
+    Command trajectoryAuton =
+        driveOffTarmac == null ? null : new FollowTrajectoryCommand(driveBase, driveOffTarmac, true);
+
+    // An auto routine that does nothing.
+    Command doNothingAuton = null;
+
+    addAutonRoutine("Drive And Shoot Auton", driveShootAuton);
+    addAutonRoutine("Drive Auton", driveAuton);
+    addAutonRoutine("Shooting Auton", shootAuton);
+    addAutonRoutine("Drive Distance Auton", driveDistanceAuton);
+    if (trajectoryAuton != null) {
+      addAutonRoutine("Trajectory Auton", trajectoryAuton);
+    }
+    addAutonRoutine("Do Nothing Auton", doNothingAuton);
 
     SmartDashboard.putData(autonChooser);
   }
 
+  /**
+   * Maps a trajectory from the deploy directory, or returns null (and reports why) if it cannot be loaded, e.g.
+   * because generateTrajectories has not run.
+   */
+  private static MappedTrajectory loadTrajectory(String fileName) {
+    Path file = Filesystem.getDeployDirectory().toPath().resolve(AutonConstants.TRAJECTORY_DIRECTORY).resolve(fileName);
+    try {
+      return MappedTrajectory.load(file);
+    } catch (IOException e) {
+      DriverStation.reportError("Could not load trajectory " + file + ": " + e, false);
+      return null;
+    }
+  }
+
+  /**
+   * Adds an autonomous routine to the chooser. The first routine added is the default.
+   */
+  private void addAutonRoutine(String name, Command routine) {
+    if (routine != null) {
+      warmedUp(routine);
+    }
+    if (autonRoutines.isEmpty()) {
+      autonChooser.setDefaultOption(name, routine);
+    } else {
+      autonChooser.addOption(name, routine);
+    }
+    autonRoutines.put(name, routine);
+  }
+
+  /**
+   * Homes the climber if it has not been homed since boot and ClimberHomingConstants.HOME_ON_ENABLE is set. Called
+   * every time the robot is enabled, since the motors cannot move while it is disabled; a homing that was interrupted
+   * by disabling is retried on the next enable.
+   */
+  public void homeClimberIfNeeded() {
+    if (ClimberHomingConstants.HOME_ON_ENABLE && !climber.isHomed() && !homeClimberCommand.isScheduled()) {
+      homeClimberCommand.schedule();
+    }
+  }
+
+  /**
+   * Returns the power manager, or null if the power budget is disabled.
+   */
+  public PowerManager getPowerManager() {
+    return powerManager;
+  }
+
+  /**
+   * Returns every autonomous routine by name, in the order they appear in the chooser. A routine may be null if it
+   * does nothing.
+   *
+   * @return the autonomous routines
+   */
+  public Map<String, Command> getAutonRoutines() {
+    return Collections.unmodifiableMap(autonRoutines);
+  }
+
+  /**
+   * Adds a command to the commands returned by {@link #getWarmupCommands()}.
+   *
+   * @return the command
+   */
+  private Command warmedUp(Command command) {
+    warmupCommands.add(command);
+    return command;
+  }
+
+  /**
+   * Returns every command that can run during a match, to be warmed up while the robot is disabled.
+   *
+   * @return the commands
+   */
+  public List<Command> getWarmupCommands() {
+    return Collections.unmodifiableList(warmupCommands);
+  }
+
+  /**
+   * Returns the {@link DriveBase}. Used by the simulation harnesses.
+   */
+  DriveBase getDriveBase() {
+    return driveBase;
+  }
+
+  /**
+   * Returns the {@link Climber}. Used by the simulation harnesses.
+   */
+  Climber getClimber() {
+    return climber;
+  }
+
+  /**
+   * Returns the {@link Outtake}. Used by the simulation harnesses.
+   */
+  Outtake getOuttake() {
+    return outtake;
+  }
+
   /**
    * Use this to pass the autonomous command to the main {@link Robot} class.
    *
@@ -162,11 +381,7 @@ public class RobotContainer {
    * setAutonDefaultCommands().
    */
   public void setTeleopDefaultCommands() {
-    driveBase.setDefaultCommand(
-        new TankDriveCommand(
-            driveBase,
-            () -> driverJoystick.getRawAxis(DriverAxes.LEFT),
-            () -> driverJoystick.getRawAxis(DriverAxes.RIGHT)));
+    driveBase.setDefaultCommand(teleopDriveCommand);
   }
 
   /**
@@ -175,7 +390,7 @@ public class RobotContainer {
    * setTeleopDefaultCommands().
    */
   public void setAutonDefaultCommands() {
-    driveBase.setDefaultCommand(new StopDriveCommand(driveBase));
+    driveBase.setDefaultCommand(autonDriveCommand);
   }
 
 
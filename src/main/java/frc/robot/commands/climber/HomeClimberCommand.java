@@ -0,0 +1,83 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands.climber;
+
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants.ClimberConstants.ClimberHomingConstants;
+import frc.robot.subsystems.Climber;
+import overclocked.stl.motorcontrol.StallDetector;
+
+/**
+ * Finds the retracted position of the {@link Climber} arms without a limit switch.
+ *
+ * <p>
+ * Both arms are driven slowly toward the retracted hard stop. Each arm is stopped and its encoder zeroed as soon as
+ * its {@link StallDetector} sees the stall, so each arm is homed separately. The {@link Climber} is only marked as
+ * homed once both arms are.
+ */
+public class HomeClimberCommand extends CommandBase {
+  private final Climber climber;
+  private final StallDetector leftDetector = createDetector();
+  private final StallDetector rightDetector = createDetector();
+  private boolean leftHomed;
+  private boolean rightHomed;
+
+  /**
+   * Creates a command that homes the given {@link Climber}.
+   *
+   * @param climber The {@link Climber} to home.
+   */
+  public HomeClimberCommand(Climber climber) {
+    this.climber = climber;
+    addRequirements(this.climber);
+  }
+
+  private static StallDetector createDetector() {
+    return new StallDetector(
+        ClimberHomingConstants.STALL_CURRENT,
+        ClimberHomingConstants.STALL_VELOCITY,
+        ClimberHomingConstants.CURRENT_FILTER_TIME_CONSTANT,
+        ClimberHomingConstants.STALL_DEBOUNCE_TIME,
+        ClimberHomingConstants.STARTUP_BLANKING_TIME);
+  }
+
+  @Override
+  public void initialize() {
+    long now = climber.getSensorTimestamp();
+    leftDetector.reset(now);
+    rightDetector.reset(now);
+    leftHomed = false;
+    rightHomed = false;
+  }
+
+  @Override
+  public void execute() {
+    long timestamp = climber.getSensorTimestamp();
+    if (!leftHomed && leftDetector.update(climber.getLeftCurrent(), climber.getLeftVelocity(), timestamp)) {
+      climber.zeroLeftPosition();
+      leftHomed = true;
+    }
+    if (!rightHomed && rightDetector.update(climber.getRightCurrent(), climber.getRightVelocity(), timestamp)) {
+      climber.zeroRightPosition();
+      rightHomed = true;
+    }
+    climber.setHomingSpeeds(
+        leftHomed ? 0 : ClimberHomingConstants.SPEED,
+        rightHomed ? 0 : ClimberHomingConstants.SPEED);
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    climber.setSpeed(0);
+    if (leftHomed && rightHomed) {
+      climber.setHomed();
+    }
+  }
+
+  @Override
+  public boolean isFinished() {
+    return leftHomed && rightHomed;
+  }
+}
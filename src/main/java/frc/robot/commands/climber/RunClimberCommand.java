@@ -4,6 +4,7 @@
 
 package frc.robot.commands.climber;
 
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 import edu.wpi.first.wpilibj2.command.CommandBase;
@@ -15,7 +16,7 @@ import frc.robot.subsystems.Climber;
  */
 public class RunClimberCommand extends CommandBase {
   private final Climber climber;
-  private final Supplier<Double> speedSupplier;
+  private final DoubleSupplier speedSupplier;
 
   /**
    * Runs the {@link Climber} at the given speed.
@@ -33,15 +34,27 @@ public class RunClimberCommand extends CommandBase {
    * @param climber The {@link Climber} to run
    * @param speedSupplier Supplier for the speed to run at
    */
-  public RunClimberCommand(Climber climber, Supplier<Double> speedSupplier) {
+  public RunClimberCommand(Climber climber, DoubleSupplier speedSupplier) {
     this.climber = climber;
     this.speedSupplier = speedSupplier;
     addRequirements(this.climber);
   }
 
+  /**
+   * Runs the {@link Climber} at the speed given by the supplier.
+   *
+   * @param climber The {@link Climber} to run
+   * @param speedSupplier Supplier for the speed to run at
+   * @deprecated Boxes the speed on every execute(). Use a {@link DoubleSupplier} instead.
+   */
+  @Deprecated
+  public RunClimberCommand(Climber climber, Supplier<Double> speedSupplier) {
+    this(climber, (DoubleSupplier) speedSupplier::get);
+  }
+
   @Override
   public void execute() {
-    climber.setSpeed(speedSupplier.get());
+    climber.setSpeed(speedSupplier.getAsDouble());
   }
 
   @Override
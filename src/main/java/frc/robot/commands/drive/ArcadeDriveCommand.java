@@ -4,6 +4,7 @@
 
 package frc.robot.commands.drive;
 
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 import frc.robot.subsystems.DriveBase;
@@ -13,8 +14,8 @@ import frc.robot.subsystems.DriveBase;
  */
 public class ArcadeDriveCommand extends DriveCommand {
 
-  private final Supplier<Double> linearSpeedSupplier;
-  private final Supplier<Double> angularSpeedSupplier;
+  private final DoubleSupplier linearSpeedSupplier;
+  private final DoubleSupplier angularSpeedSupplier;
 
   /**
    * Drives the driveBase at the linear and angular speeds returned by their respective Suppliers.
@@ -23,14 +24,28 @@ public class ArcadeDriveCommand extends DriveCommand {
    * @param linearSpeedSupplier Supplier for linear speed
    * @param angularSpeedSupplier Supplier for angular speed
    */
-  public ArcadeDriveCommand(DriveBase driveBase, Supplier<Double> linearSpeedSupplier,
-      Supplier<Double> angularSpeedSupplier) {
+  public ArcadeDriveCommand(DriveBase driveBase, DoubleSupplier linearSpeedSupplier,
+      DoubleSupplier angularSpeedSupplier) {
     super(driveBase);
     this.linearSpeedSupplier = linearSpeedSupplier;
     this.angularSpeedSupplier = angularSpeedSupplier;
     addRequirements(this.driveBase);
   }
 
+  /**
+   * Drives the driveBase at the linear and angular speeds returned by their respective Suppliers.
+   *
+   * @param driveBase The {@link DriveBase} to drive
+   * @param linearSpeedSupplier Supplier for linear speed
+   * @param angularSpeedSupplier Supplier for angular speed
+   * @deprecated Boxes both speeds on every execute(). Use {@link DoubleSupplier}s instead.
+   */
+  @Deprecated
+  public ArcadeDriveCommand(DriveBase driveBase, Supplier<Double> linearSpeedSupplier,
+      Supplier<Double> angularSpeedSupplier) {
+    this(driveBase, (DoubleSupplier) linearSpeedSupplier::get, (DoubleSupplier) angularSpeedSupplier::get);
+  }
+
   /**
    * Drives the driveBase at the given angular and linear speeds.
    *
@@ -44,7 +59,7 @@ public class ArcadeDriveCommand extends DriveCommand {
 
   @Override
   public void execute() {
-    driveBase.arcadeDrive(linearSpeedSupplier.get(), angularSpeedSupplier.get());
+    driveBase.arcadeDrive(linearSpeedSupplier.getAsDouble(), angularSpeedSupplier.getAsDouble());
   }
 
   @Override
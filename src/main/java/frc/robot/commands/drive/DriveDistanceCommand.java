@@ -0,0 +1,38 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands.drive;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.subsystems.DriveBase;
+
+/**
+ * Drives a {@link DriveBase} in a (roughly) straight line until its odometry says it has covered a distance.
+ */
+public class DriveDistanceCommand extends StraightDriveCommand {
+  private final double distanceMeters;
+  private Pose2d startPose;
+
+  /**
+   * Drives the driveBase in a (roughly) straight line for the given distance.
+   *
+   * @param driveBase The {@link DriveBase} to drive
+   * @param speed The speed, negative to drive backwards
+   * @param distanceMeters The distance to drive, in meters
+   */
+  public DriveDistanceCommand(DriveBase driveBase, double speed, double distanceMeters) {
+    super(driveBase, speed);
+    this.distanceMeters = distanceMeters;
+  }
+
+  @Override
+  public void initialize() {
+    startPose = driveBase.getPose();
+  }
+
+  @Override
+  public boolean isFinished() {
+    return driveBase.getPose().getTranslation().getDistance(startPose.getTranslation()) >= distanceMeters;
+  }
+}
@@ -0,0 +1,68 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands.drive;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.DriveConstants;
+import frc.robot.subsystems.DriveBase;
+import overclocked.stl.trajectory.MappedTrajectory;
+import overclocked.stl.trajectory.RamseteFollower;
+import overclocked.stl.trajectory.TrajectorySample;
+
+/**
+ * Follows a pre-generated trajectory with a {@link DriveBase}, using RAMSETE feedback on its odometry.
+ */
+public class FollowTrajectoryCommand extends DriveCommand {
+  private final MappedTrajectory trajectory;
+  private final boolean resetPose;
+  private final RamseteFollower follower = new RamseteFollower(
+      DriveConstants.RAMSETE_B,
+      DriveConstants.RAMSETE_ZETA,
+      DriveConstants.TRACK_WIDTH_METERS);
+  private final TrajectorySample reference = new TrajectorySample();
+  private final Timer timer = new Timer();
+
+  /**
+   * Follows the trajectory.
+   *
+   * @param driveBase The {@link DriveBase} to drive
+   * @param trajectory The trajectory to follow
+   * @param resetPose Whether to reset the odometry to the start of the trajectory first, e.g. for the first
+   *        trajectory of an autonomous routine
+   */
+  public FollowTrajectoryCommand(DriveBase driveBase, MappedTrajectory trajectory, boolean resetPose) {
+    super(driveBase);
+    this.trajectory = trajectory;
+    this.resetPose = resetPose;
+    addRequirements(this.driveBase);
+  }
+
+  @Override
+  public void initialize() {
+    if (resetPose) {
+      driveBase.resetPose(trajectory.getInitialPose());
+    }
+    timer.reset();
+    timer.start();
+  }
+
+  @Override
+  public void execute() {
+    trajectory.sample(timer.get(), reference);
+    follower.calculate(driveBase.getPose(), reference);
+    driveBase.driveWheelSpeeds(follower.getLeftVelocity(), follower.getRightVelocity());
+  }
+
+  @Override
+  public void end(boolean interrupted) {
+    timer.stop();
+    driveBase.stopDrive();
+  }
+
+  @Override
+  public boolean isFinished() {
+    return timer.hasElapsed(trajectory.getTotalTime());
+  }
+}
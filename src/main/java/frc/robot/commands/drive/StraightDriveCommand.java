@@ -4,6 +4,7 @@
 
 package frc.robot.commands.drive;
 
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 import frc.robot.subsystems.DriveBase;
@@ -20,10 +21,23 @@ public class StraightDriveCommand extends TankDriveCommand {
    * @param speedSupplier Supplier for speed
    */
   public StraightDriveCommand(DriveBase driveBase,
-      Supplier<Double> speedSupplier) {
+      DoubleSupplier speedSupplier) {
     super(driveBase, speedSupplier, speedSupplier);
   }
 
+  /**
+   * Drives the driveBase in a (roughly) straight line.
+   *
+   * @param driveBase The {@link DriveBase} to drive
+   * @param speedSupplier Supplier for speed
+   * @deprecated Boxes the speed on every execute(). Use a {@link DoubleSupplier} instead.
+   */
+  @Deprecated
+  public StraightDriveCommand(DriveBase driveBase,
+      Supplier<Double> speedSupplier) {
+    this(driveBase, (DoubleSupplier) speedSupplier::get);
+  }
+
   /**
    * Drives the driveBase in a (roughly) straight line.
    *
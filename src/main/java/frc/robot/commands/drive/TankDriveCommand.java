@@ -4,6 +4,7 @@
 
 package frc.robot.commands.drive;
 
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 import frc.robot.subsystems.DriveBase;
@@ -13,8 +14,8 @@ import frc.robot.subsystems.DriveBase;
  */
 public class TankDriveCommand extends DriveCommand {
 
-  private final Supplier<Double> leftSpeedSupplier;
-  private final Supplier<Double> rightSpeedSupplier;
+  private final DoubleSupplier leftSpeedSupplier;
+  private final DoubleSupplier rightSpeedSupplier;
 
   /**
    * Drives the driveBase at the left and right speeds returned by their respective Suppliers.
@@ -23,14 +24,28 @@ public class TankDriveCommand extends DriveCommand {
    * @param leftSpeedSupplier Supplier for left speed
    * @param rightSpeedSupplier Supplier for right speed
    */
-  public TankDriveCommand(DriveBase driveBase, Supplier<Double> leftSpeedSupplier,
-      Supplier<Double> rightSpeedSupplier) {
+  public TankDriveCommand(DriveBase driveBase, DoubleSupplier leftSpeedSupplier,
+      DoubleSupplier rightSpeedSupplier) {
     super(driveBase);
     this.leftSpeedSupplier = leftSpeedSupplier;
     this.rightSpeedSupplier = rightSpeedSupplier;
     addRequirements(this.driveBase);
   }
 
+  /**
+   * Drives the driveBase at the left and right speeds returned by their respective Suppliers.
+   *
+   * @param driveBase The {@link DriveBase} to drive
+   * @param leftSpeedSupplier Supplier for left speed
+   * @param rightSpeedSupplier Supplier for right speed
+   * @deprecated Boxes both speeds on every execute(). Use {@link DoubleSupplier}s instead.
+   */
+  @Deprecated
+  public TankDriveCommand(DriveBase driveBase, Supplier<Double> leftSpeedSupplier,
+      Supplier<Double> rightSpeedSupplier) {
+    this(driveBase, (DoubleSupplier) leftSpeedSupplier::get, (DoubleSupplier) rightSpeedSupplier::get);
+  }
+
   /**
    * Drives the driveBase at the given left and right speeds.
    *
@@ -44,7 +59,7 @@ public class TankDriveCommand extends DriveCommand {
 
   @Override
   public void execute() {
-    driveBase.tankDrive(leftSpeedSupplier.get(), rightSpeedSupplier.get());
+    driveBase.tankDrive(leftSpeedSupplier.getAsDouble(), rightSpeedSupplier.getAsDouble());
   }
 
   @Override
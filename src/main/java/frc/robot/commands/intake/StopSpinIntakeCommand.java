@@ -21,7 +21,7 @@ public class StopSpinIntakeCommand extends CommandBase {
    */
   public StopSpinIntakeCommand(Intake intake) {
     this.intake = intake;
-    addRequirements(this.intake);
+    addRequirements(this.intake.getRollers());
   }
 
   @Override
@@ -4,21 +4,22 @@
 
 package frc.robot.commands.intake;
 
-import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import edu.wpi.first.wpilibj2.command.ConditionalCommand;
 import frc.robot.subsystems.Intake;
 
 /**
- * Toggles the {@link DoubleSolenoid.Value} (aka extension/retraction) of the given {@link Intake}.
+ * Toggles the extension/retraction of the given {@link Intake}.
  */
-public class ToggleExtensionIntakeCommand extends SequentialCommandGroup {
+public class ToggleExtensionIntakeCommand extends ConditionalCommand {
   /**
-   * Creates a command that toggles the {@link DoubleSolenoid.Value}s between Extended and
-   * Retracted. If in neutral toggles them to Retracted.
+   * Creates a command that toggles the {@link Intake} between extended and retracted. The direction is picked from
+   * the {@link Intake.State} when the command is scheduled, not when it is created: retracted or retracting extends,
+   * anything else (including neutral) retracts.
    *
    * @param intake The {@link Intake} to control.
    */
   public ToggleExtensionIntakeCommand(Intake intake) {
-    super((intake.isRetracted()) ? (new ExtendIntakeCommand(intake))
-        : (new RetractIntakeCommand(intake)));
+    super(new ExtendIntakeCommand(intake), new RetractIntakeCommand(intake),
+        () -> intake.getState() == Intake.State.RETRACTED || intake.getState() == Intake.State.RETRACTING);
   }
 }
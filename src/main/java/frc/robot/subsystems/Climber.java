@@ -1,26 +1,85 @@
 
 package frc.robot.subsystems;
 
+import com.ctre.phoenix.ParamEnum;
 import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.TalonFXInvertType;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.ClimberConstants;
 import frc.robot.Constants.ClimberConstants.ClimberPIDConstants;
+import frc.robot.Constants.ClimberConstants.ClimberPositions;
+import frc.robot.Constants.DeviceConfigConstants;
+import frc.robot.Constants.SignalLogConstants;
+import overclocked.stl.config.ConfigHash;
+import overclocked.stl.config.ConfigStep;
+import overclocked.stl.config.CustomParamConfigMarker;
+import overclocked.stl.config.DeviceConfig;
+import overclocked.stl.config.DeviceConfigurator;
+import overclocked.stl.logging.SignalLogger;
+import overclocked.stl.motorcontrol.DeduplicatedMotorController;
+import overclocked.stl.motorcontrol.OutputGate;
+import overclocked.stl.profiling.ProfiledSubsystemBase;
+import overclocked.stl.sensors.SensorSnapshot;
+import overclocked.stl.sensors.SensorSnapshotManager;
+import overclocked.stl.telemetry.TelemetryRegistry;
+import overclocked.stl.telemetry.TelemetryRegistry.BooleanEntry;
+import overclocked.stl.telemetry.TelemetryRegistry.DoubleEntry;
 
 /**
  * A subsystem that controls the Climber on the robot.
+ *
+ * <p>
+ * With ClimberConstants.SYNCHRONIZED, the two arms are driven independently and kept level by a coupling loop on the
+ * roboRIO: the difference between the left and right positions is turned into a correction that slows the arm that
+ * is ahead and speeds up the one behind. It is added as an arbitrary feedforward to the MotionMagic moves, and to the
+ * PercentOutput speed while the arms are moving. Otherwise the right motor follows the left one.
+ *
+ * <p>
+ * The encoders are zeroed at boot, which is only right if the arms were retracted then. The Climber counts as homed
+ * once {@link frc.robot.commands.climber.HomeClimberCommand} has found the retracted hard stop of both arms.
  */
-public class Climber extends SubsystemBase {
+public class Climber extends ProfiledSubsystemBase {
   private final WPI_TalonFX leftClimberMotor;
   private final WPI_TalonFX rightClimberMotor;
 
+  private final DeduplicatedMotorController leftOutput;
+  private final DeduplicatedMotorController rightOutput;
+  private double requestedSpeed = 0;
+  private double outputScale = 1.0;
+  private boolean positionControl = false;
+  private double targetPosition = 0;
+  private boolean homing = false;
+  private double homingLeftSpeed = 0;
+  private double homingRightSpeed = 0;
+  private boolean homed = false;
+
+  private final Sensors sensors = new Sensors();
+
+  private final DoubleEntry leftPositionEntry =
+      TelemetryRegistry.getInstance().addDouble("Left Climber Motor Position", 5);
+  private final DoubleEntry rightPositionEntry =
+      TelemetryRegistry.getInstance().addDouble("Right Climber Motor Position", 5);
+  private final DoubleEntry skippedWritesEntry =
+      TelemetryRegistry.getInstance().addDouble("Climber Skipped CAN Writes", 50);
+  private final DoubleEntry positionErrorEntry =
+      TelemetryRegistry.getInstance().addDouble("Climber Position Error", 5);
+  private final DoubleEntry syncCorrectionEntry =
+      TelemetryRegistry.getInstance().addDouble("Climber Sync Correction", 5);
+  private final BooleanEntry homedEntry = TelemetryRegistry.getInstance().addBoolean("Climber Homed", 5);
+
   /**
-   * Creates a Climber with its left and right {@link WPI_TalonFX} at the given IDS.
+   * Creates a Climber with its left and right {@link WPI_TalonFX} at the given IDS. Unless the arms are synchronized,
+   * the right motor follows the left one, so both receive their setpoints in the same control frame.
+   *
+   * <p>
+   * The current limits, PID gains and MotionMagic parameters are submitted to the {@link DeviceConfigurator}, which
+   * sends and verifies them once every subsystem has been created, and only if they have changed since they were last
+   * applied. The inversion, neutral mode and follower settings are not persistent and are always sent.
    *
    * @param leftMotorID The ID of the left motor
    * @param rightMotorID The ID of the right motor
@@ -29,67 +88,330 @@ public class Climber extends SubsystemBase {
     leftClimberMotor = new WPI_TalonFX(leftMotorID);
     leftClimberMotor.setInverted(TalonFXInvertType.Clockwise);
     rightClimberMotor = new WPI_TalonFX(rightMotorID);
-    rightClimberMotor.setInverted(TalonFXInvertType.Clockwise);
-    leftClimberMotor.configSupplyCurrentLimit(
-        new SupplyCurrentLimitConfiguration(true, ClimberConstants.CURRENT_LIMIT,
-            ClimberConstants.TRIGGER_THRESHOLD,
-            ClimberConstants.TRIGGER_THRESHOLD_TIME));
-    rightClimberMotor.configSupplyCurrentLimit(
-        new SupplyCurrentLimitConfiguration(true, ClimberConstants.CURRENT_LIMIT,
-            ClimberConstants.TRIGGER_THRESHOLD,
-            ClimberConstants.TRIGGER_THRESHOLD_TIME));
+    if (ClimberConstants.SYNCHRONIZED) {
+      rightClimberMotor.setInverted(TalonFXInvertType.Clockwise);
+    } else {
+      rightClimberMotor.follow(leftClimberMotor);
+      rightClimberMotor.setInverted(TalonFXInvertType.FollowMaster);
+    }
+    configureMotor("Left Climber Motor", leftClimberMotor,
+        ClimberPIDConstants.kP_LEFT, ClimberPIDConstants.kI_LEFT, ClimberPIDConstants.kD_LEFT);
+    configureMotor("Right Climber Motor", rightClimberMotor,
+        ClimberPIDConstants.kP_RIGHT, ClimberPIDConstants.kI_RIGHT, ClimberPIDConstants.kD_RIGHT);
     leftClimberMotor.setNeutralMode(NeutralMode.Brake);
     rightClimberMotor.setNeutralMode(NeutralMode.Brake);
 
-    leftClimberMotor.config_kP(ClimberPIDConstants.kSlotIdx, ClimberPIDConstants.kP_LEFT,
-        ClimberPIDConstants.timeoutMs);
-    leftClimberMotor.config_kI(ClimberPIDConstants.kSlotIdx, ClimberPIDConstants.kI_LEFT,
-        ClimberPIDConstants.timeoutMs);
-    leftClimberMotor.config_kD(ClimberPIDConstants.kSlotIdx, ClimberPIDConstants.kD_LEFT,
-        ClimberPIDConstants.timeoutMs);
-    rightClimberMotor.config_kP(ClimberPIDConstants.kSlotIdx, ClimberPIDConstants.kP_RIGHT,
-        ClimberPIDConstants.timeoutMs);
-    rightClimberMotor.config_kI(ClimberPIDConstants.kSlotIdx, ClimberPIDConstants.kI_RIGHT,
-        ClimberPIDConstants.timeoutMs);
-    rightClimberMotor.config_kD(ClimberPIDConstants.kSlotIdx, ClimberPIDConstants.kD_RIGHT,
-        ClimberPIDConstants.timeoutMs);
-
-    leftClimberMotor.configMotionCruiseVelocity(ClimberPIDConstants.VELOCITY, ClimberPIDConstants.timeoutMs);
-    leftClimberMotor.configMotionAcceleration(ClimberPIDConstants.ACCELERATION, ClimberPIDConstants.timeoutMs);
-    leftClimberMotor.configMotionSCurveStrength(ClimberPIDConstants.CURVE_STRENGTH, ClimberPIDConstants.timeoutMs);
-    rightClimberMotor.configMotionCruiseVelocity(ClimberPIDConstants.VELOCITY, ClimberPIDConstants.timeoutMs);
-    rightClimberMotor.configMotionAcceleration(ClimberPIDConstants.ACCELERATION, ClimberPIDConstants.timeoutMs);
-    rightClimberMotor.configMotionSCurveStrength(ClimberPIDConstants.CURVE_STRENGTH, ClimberPIDConstants.timeoutMs);
-
     leftClimberMotor.setSelectedSensorPosition(0);
     rightClimberMotor.setSelectedSensorPosition(0);
+    leftOutput = new DeduplicatedMotorController(leftClimberMotor);
+    rightOutput = new DeduplicatedMotorController(rightClimberMotor);
+    SignalLogger signalLogger = SignalLogger.getInstance();
+    signalLogger.addMotor("Climber/Left", leftClimberMotor, SignalLogConstants.STATUS_FRAME_PERIOD_MS);
+    signalLogger.addMotor("Climber/Right", rightClimberMotor, ClimberConstants.SYNCHRONIZED
+        ? SignalLogConstants.STATUS_FRAME_PERIOD_MS
+        : SignalLogConstants.FOLLOWER_STATUS_FRAME_PERIOD_MS);
+    SensorSnapshotManager.getInstance().register(sensors);
     CommandScheduler.getInstance().registerSubsystem(this);
   }
 
+  /**
+   * Submits the current limit, PID gains and MotionMagic parameters of a Climber motor to the
+   * {@link DeviceConfigurator}.
+   */
+  private static void configureMotor(String name, WPI_TalonFX motor, double kP, double kI, double kD) {
+    ConfigHash hash = new ConfigHash("TalonFX")
+        .add("currentLimit", ClimberConstants.CURRENT_LIMIT)
+        .add("triggerThreshold", ClimberConstants.TRIGGER_THRESHOLD)
+        .add("triggerThresholdTime", ClimberConstants.TRIGGER_THRESHOLD_TIME)
+        .add("slot", ClimberPIDConstants.kSlotIdx)
+        .add("kP", kP)
+        .add("kI", kI)
+        .add("kD", kD)
+        .add("cruiseVelocity", ClimberPIDConstants.VELOCITY)
+        .add("acceleration", ClimberPIDConstants.ACCELERATION)
+        .add("sCurveStrength", ClimberPIDConstants.CURVE_STRENGTH);
+
+    int slot = ClimberPIDConstants.kSlotIdx;
+    DeviceConfigurator.getInstance().submit(
+        new DeviceConfig(name, new CustomParamConfigMarker(motor, DeviceConfigConstants.TIMEOUT_MS), hash)
+            .add(ConfigStep.supplyCurrentLimit(motor,
+                new SupplyCurrentLimitConfiguration(true, ClimberConstants.CURRENT_LIMIT,
+                    ClimberConstants.TRIGGER_THRESHOLD,
+                    ClimberConstants.TRIGGER_THRESHOLD_TIME)))
+            .add(ConfigStep.ctreParam(motor, "kP", ParamEnum.eProfileParamSlot_P, slot, kP,
+                timeoutMs -> motor.config_kP(slot, kP, timeoutMs)))
+            .add(ConfigStep.ctreParam(motor, "kI", ParamEnum.eProfileParamSlot_I, slot, kI,
+                timeoutMs -> motor.config_kI(slot, kI, timeoutMs)))
+            .add(ConfigStep.ctreParam(motor, "kD", ParamEnum.eProfileParamSlot_D, slot, kD,
+                timeoutMs -> motor.config_kD(slot, kD, timeoutMs)))
+            .add(ConfigStep.ctreParam(motor, "cruiseVelocity", ParamEnum.eMotMag_VelCruise, 0,
+                ClimberPIDConstants.VELOCITY,
+                timeoutMs -> motor.configMotionCruiseVelocity(ClimberPIDConstants.VELOCITY, timeoutMs)))
+            .add(ConfigStep.ctreParam(motor, "acceleration", ParamEnum.eMotMag_Accel, 0,
+                ClimberPIDConstants.ACCELERATION,
+                timeoutMs -> motor.configMotionAcceleration(ClimberPIDConstants.ACCELERATION, timeoutMs)))
+            .add(ConfigStep.ctreParam(motor, "sCurveStrength", ParamEnum.eMotMag_SCurveLevel, 0,
+                ClimberPIDConstants.CURVE_STRENGTH,
+                timeoutMs -> motor.configMotionSCurveStrength(ClimberPIDConstants.CURVE_STRENGTH, timeoutMs))));
+  }
+
   /**
    * Set the speed of the left and right Climber motors in PercentOutput.
    *
    * @param speed The speed to set both climbers to
    */
   public void setSpeed(double speed) {
-    leftClimberMotor.set(ControlMode.PercentOutput, speed);
-    rightClimberMotor.set(ControlMode.PercentOutput, speed);
+    stopHoming();
+    requestedSpeed = speed;
+    positionControl = false;
+    applyOutputs();
+  }
+
+  /**
+   * Sets the speed of each Climber motor separately in PercentOutput, without the synchronization correction. Only
+   * meant for homing; the next call to {@link #setSpeed(double)} or {@link #setPosition(double)} ends it.
+   *
+   * @param leftSpeed The speed of the left motor
+   * @param rightSpeed The speed of the right motor
+   */
+  public void setHomingSpeeds(double leftSpeed, double rightSpeed) {
+    if (!homing && !ClimberConstants.SYNCHRONIZED) {
+      // Out of follower mode, FollowMaster no longer matches the left motor, so drive the right motor the same way
+      // explicitly until homing ends.
+      rightClimberMotor.setInverted(TalonFXInvertType.Clockwise);
+    }
+    homing = true;
+    homingLeftSpeed = leftSpeed;
+    homingRightSpeed = rightSpeed;
+    requestedSpeed = Math.max(Math.abs(leftSpeed), Math.abs(rightSpeed));
+    positionControl = false;
+    applyOutputs();
+  }
+
+  private void stopHoming() {
+    if (homing) {
+      homing = false;
+      if (!ClimberConstants.SYNCHRONIZED) {
+        rightClimberMotor.follow(leftClimberMotor);
+        rightClimberMotor.setInverted(TalonFXInvertType.FollowMaster);
+        rightOutput.invalidate();
+      }
+    }
+  }
+
+  /**
+   * Zeroes the left Climber encoder, e.g. once the left arm has reached the retracted hard stop.
+   */
+  public void zeroLeftPosition() {
+    if (OutputGate.isInhibited()) {
+      return;
+    }
+    leftClimberMotor.setSelectedSensorPosition(ClimberPositions.RETRACTED);
+  }
+
+  /**
+   * Zeroes the right Climber encoder, e.g. once the right arm has reached the retracted hard stop.
+   */
+  public void zeroRightPosition() {
+    if (OutputGate.isInhibited()) {
+      return;
+    }
+    rightClimberMotor.setSelectedSensorPosition(ClimberPositions.RETRACTED);
+  }
+
+  /**
+   * Marks both arms as homed, once both encoders have been zeroed at the hard stop.
+   */
+  public void setHomed() {
+    if (!OutputGate.isInhibited()) {
+      homed = true;
+    }
+  }
+
+  /**
+   * Returns whether both arms have been homed since boot.
+   */
+  public boolean isHomed() {
+    return homed;
+  }
+
+  /**
+   * Returns the percent output last set with {@link #setSpeed(double)}.
+   */
+  public double getSpeed() {
+    return requestedSpeed;
+  }
+
+  /**
+   * Returns the current the Climber would draw at the speed last set with {@link #setSpeed(double)}, at worst, in
+   * amps. During a MotionMagic move, the prediction is made from the outputs of the Talons' closed loops as read at
+   * the start of this loop.
+   */
+  public double getPredictedCurrent() {
+    if (positionControl) {
+      return (Math.abs(sensors.leftOutputPercent) + Math.abs(sensors.rightOutputPercent))
+          * ClimberConstants.CURRENT_LIMIT;
+    }
+    return Math.abs(requestedSpeed) * 2 * ClimberConstants.CURRENT_LIMIT;
+  }
+
+  /**
+   * Scales the PercentOutput speed, e.g. to stay within the robot's power budget. MotionMagic moves are not scaled.
+   *
+   * @param scale The scale, from 0 (stopped) to 1 (unchanged)
+   */
+  public void setOutputScale(double scale) {
+    outputScale = scale;
+    if (!positionControl) {
+      applyOutputs();
+    }
   }
 
   /**
    * Set the position of the left and right Climber motors.
    *
-   * @param speed The position to set left climber to
+   * @param position The position to move both climbers to
    */
   public void setPosition(double position) {
-    leftClimberMotor.set(ControlMode.MotionMagic, position);
-    rightClimberMotor.set(ControlMode.MotionMagic, position);
+    stopHoming();
+    targetPosition = position;
+    positionControl = true;
+    applyOutputs();
+  }
+
+  /**
+   * Sends the current request to the motors, with the synchronization correction if the arms are synchronized.
+   */
+  private void applyOutputs() {
+    double correction = getSyncCorrection();
+    if (positionControl) {
+      if (OutputGate.isInhibited()) {
+        return;
+      }
+      if (ClimberConstants.SYNCHRONIZED) {
+        leftClimberMotor.set(ControlMode.MotionMagic, targetPosition, DemandType.ArbitraryFeedForward, -correction);
+        rightClimberMotor.set(ControlMode.MotionMagic, targetPosition, DemandType.ArbitraryFeedForward, correction);
+        rightOutput.invalidate();
+      } else {
+        leftClimberMotor.set(ControlMode.MotionMagic, targetPosition);
+      }
+      leftOutput.invalidate();
+    } else if (homing) {
+      leftOutput.set(homingLeftSpeed * outputScale);
+      rightOutput.set(homingRightSpeed * outputScale);
+    } else {
+      double speed = requestedSpeed * outputScale;
+      if (ClimberConstants.SYNCHRONIZED) {
+        // Only correct while moving, so that stopped arms are not pushed against each other.
+        if (speed == 0) {
+          correction = 0;
+        }
+        leftOutput.set(speed - correction);
+        rightOutput.set(speed + correction);
+      } else {
+        leftOutput.set(speed);
+      }
+    }
+  }
+
+  /**
+   * Returns the percent output to take off the left arm and add to the right one to bring them level, or 0 if the
+   * arms are not synchronized.
+   */
+  private double getSyncCorrection() {
+    if (!ClimberConstants.SYNCHRONIZED) {
+      return 0;
+    }
+    return MathUtil.clamp(ClimberConstants.SYNC_KP * (sensors.leftPosition - sensors.rightPosition),
+        -ClimberConstants.SYNC_MAX_CORRECTION, ClimberConstants.SYNC_MAX_CORRECTION);
+  }
+
+  /**
+   * Returns the position of the left Climber motor, as read at the start of this loop.
+   */
+  public double getLeftPosition() {
+    return sensors.leftPosition;
+  }
+
+  /**
+   * Returns the position of the right Climber motor, as read at the start of this loop.
+   */
+  public double getRightPosition() {
+    return sensors.rightPosition;
+  }
+
+  /**
+   * Returns the stator current of the left Climber motor in amps, as read at the start of this loop.
+   */
+  public double getLeftCurrent() {
+    return sensors.leftCurrent;
+  }
+
+  /**
+   * Returns the stator current of the right Climber motor in amps, as read at the start of this loop.
+   */
+  public double getRightCurrent() {
+    return sensors.rightCurrent;
+  }
+
+  /**
+   * Returns the velocity of the left Climber motor in native units per 100 ms, as read at the start of this loop.
+   */
+  public double getLeftVelocity() {
+    return sensors.leftVelocity;
+  }
+
+  /**
+   * Returns the velocity of the right Climber motor in native units per 100 ms, as read at the start of this loop.
+   */
+  public double getRightVelocity() {
+    return sensors.rightVelocity;
+  }
+
+  /**
+   * Returns the FPGA time, in microseconds, at which the Climber sensors were last read.
+   */
+  public long getSensorTimestamp() {
+    return sensors.getTimestamp();
   }
 
   @Override
-  public void periodic() {
-    SmartDashboard.putNumber("Left Climber Motor Position", leftClimberMotor.getSelectedSensorPosition());
-    SmartDashboard.putNumber("Right Climber Motor Position", rightClimberMotor.getSelectedSensorPosition());
+  protected void profiledPeriodic() {
+    leftPositionEntry.set(sensors.leftPosition);
+    rightPositionEntry.set(sensors.rightPosition);
+    skippedWritesEntry.set(leftOutput.getSkippedWrites() + rightOutput.getSkippedWrites());
+    positionErrorEntry.set(sensors.leftPosition - sensors.rightPosition);
+    homedEntry.set(homed);
+    if (ClimberConstants.SYNCHRONIZED && !homing && (positionControl || requestedSpeed != 0)) {
+      applyOutputs();
+      syncCorrectionEntry.set(getSyncCorrection());
+    }
+  }
+
+  /**
+   * The Climber sensor values, read once per loop.
+   */
+  private final class Sensors extends SensorSnapshot {
+    private double leftPosition;
+    private double rightPosition;
+    private double leftVelocity;
+    private double rightVelocity;
+    private double leftCurrent;
+    private double rightCurrent;
+    private double leftOutputPercent;
+    private double rightOutputPercent;
+
+    @Override
+    protected void read() {
+      leftPosition = leftClimberMotor.getSelectedSensorPosition();
+      rightPosition = rightClimberMotor.getSelectedSensorPosition();
+      leftVelocity = leftClimberMotor.getSelectedSensorVelocity();
+      rightVelocity = rightClimberMotor.getSelectedSensorVelocity();
+      leftCurrent = leftClimberMotor.getStatorCurrent();
+      rightCurrent = rightClimberMotor.getStatorCurrent();
+      leftOutputPercent = leftClimberMotor.getMotorOutputPercent();
+      rightOutputPercent = rightClimberMotor.getMotorOutputPercent();
+    }
   }
 
 }
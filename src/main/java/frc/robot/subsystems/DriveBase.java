@@ -1,21 +1,54 @@
 
 package frc.robot.subsystems;
 
+import com.ctre.phoenix.ParamEnum;
+import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
 import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.TalonFXInvertType;
+import com.ctre.phoenix.motorcontrol.TalonFXSimCollection;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import edu.wpi.first.wpilibj.motorcontrol.MotorControllerGroup;
+import com.kauailabs.navx.frc.AHRS;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
+import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim;
+import edu.wpi.first.wpilibj.simulation.SimDeviceSim;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.DeviceConfigConstants;
 import frc.robot.Constants.DriveConstants;
+import frc.robot.Constants.SignalLogConstants;
+import overclocked.stl.config.ConfigHash;
+import overclocked.stl.config.ConfigStep;
+import overclocked.stl.config.CustomParamConfigMarker;
+import overclocked.stl.config.DeviceConfig;
+import overclocked.stl.config.DeviceConfigurator;
+import overclocked.stl.logging.SignalLogger;
+import overclocked.stl.motorcontrol.OutputGate;
 import overclocked.stl.motorcontrol.OverclockedDifferentialDrive;
+import overclocked.stl.motorcontrol.VelocityMotorController;
+import overclocked.stl.odometry.HighRateOdometry;
+import overclocked.stl.profiling.ProfiledSubsystemBase;
+import overclocked.stl.telemetry.TelemetryRegistry;
+import overclocked.stl.telemetry.TelemetryRegistry.DoubleEntry;
+import overclocked.stl.telemetry.TelemetryRegistry.StringEntry;
 
 /**
  * A subsystem that controls the drive train (aka chassis) on a robot.
  */
-public class DriveBase extends SubsystemBase {
+public class DriveBase extends ProfiledSubsystemBase {
+  private static final double NATIVE_UNITS_PER_METER = DriveConstants.GEAR_RATIO
+      * DriveConstants.ENCODER_COUNTS_PER_REVOLUTION / (Math.PI * DriveConstants.WHEEL_DIAMETER_METERS);
 
   private final WPI_TalonFX leftFrontMotor;
   private final WPI_TalonFX leftBackMotor;
@@ -24,10 +57,38 @@ public class DriveBase extends SubsystemBase {
 
   private NeutralMode motorNeutralMode;
 
+  // The front motors, or their Velocity mode adapters if DriveConstants.VELOCITY_CONTROL_ENABLED is set.
+  private final MotorController leftOutput;
+  private final MotorController rightOutput;
   private final OverclockedDifferentialDrive differentialDrive;
 
+  private final AHRS navx;
+  private final HighRateOdometry odometry;
+  private final SimpleMotorFeedforward feedforward = new SimpleMotorFeedforward(
+      DriveConstants.FEEDFORWARD_KS,
+      DriveConstants.FEEDFORWARD_KV,
+      DriveConstants.FEEDFORWARD_KA);
+
+  private final DoubleEntry leftOutputEntry = TelemetryRegistry.getInstance().addDouble("Left Drive Output", 5);
+  private final DoubleEntry rightOutputEntry = TelemetryRegistry.getInstance().addDouble("Right Drive Output", 5);
+  private final StringEntry brakingModeEntry = TelemetryRegistry.getInstance().addString("Drive Braking Mode");
+  private final DoubleEntry poseXEntry = TelemetryRegistry.getInstance().addDouble("Pose X (m)", 5);
+  private final DoubleEntry poseYEntry = TelemetryRegistry.getInstance().addDouble("Pose Y (m)", 5);
+  private final DoubleEntry poseHeadingEntry = TelemetryRegistry.getInstance().addDouble("Pose Heading (deg)", 5);
+
+  // Only created in simulation.
+  private DifferentialDrivetrainSim drivetrainSim;
+  private SimDeviceSim navxSim;
+  private boolean simulationPaused;
+
   /**
-   * Constructs a DriveBase with a {@link TalonFX} at each of the given CAN IDs.
+   * Constructs a DriveBase with a {@link TalonFX} at each of the given CAN IDs. The back motor on each side follows
+   * the front motor. If DriveConstants.HIGH_RATE_OUTPUT_ENABLED is set, the outputs are sent from their own
+   * Notifier, and the drive methods only publish setpoints to it. If DriveConstants.VELOCITY_CONTROL_ENABLED is
+   * set, the outputs are turned into wheel velocities that the front motors hold in Velocity mode.
+   *
+   * <p>
+   * The pose is tracked from the front motors' integrated sensors and the navX yaw, on a Notifier of its own.
    *
    * @param leftFrontId The CAN ID of the Left Front motor
    * @param leftBackId The CAN ID of the Left Back motor
@@ -38,42 +99,271 @@ public class DriveBase extends SubsystemBase {
     leftFrontMotor = new WPI_TalonFX(leftFrontId);
     leftFrontMotor.setInverted(TalonFXInvertType.Clockwise);
     leftBackMotor = new WPI_TalonFX(leftBackId);
-    leftBackMotor.setInverted(TalonFXInvertType.Clockwise);
+    leftBackMotor.follow(leftFrontMotor);
+    leftBackMotor.setInverted(TalonFXInvertType.FollowMaster);
 
     rightFrontMotor = new WPI_TalonFX(rightFrontId);
     rightFrontMotor.setInverted(TalonFXInvertType.CounterClockwise);
     rightBackMotor = new WPI_TalonFX(rightBackId);
-    rightBackMotor.setInverted(TalonFXInvertType.CounterClockwise);
-
-    leftFrontMotor.configSupplyCurrentLimit(
-        new SupplyCurrentLimitConfiguration(true, DriveConstants.CURRENT_LIMIT,
-            DriveConstants.TRIGGER_THRESHOLD,
-            DriveConstants.TRIGGER_THRESHOLD_TIME));
-    leftBackMotor.configSupplyCurrentLimit(
-        new SupplyCurrentLimitConfiguration(true, DriveConstants.CURRENT_LIMIT,
-            DriveConstants.TRIGGER_THRESHOLD,
-            DriveConstants.TRIGGER_THRESHOLD_TIME));
-    rightFrontMotor.configSupplyCurrentLimit(
-        new SupplyCurrentLimitConfiguration(true, DriveConstants.CURRENT_LIMIT,
-            DriveConstants.TRIGGER_THRESHOLD,
-            DriveConstants.TRIGGER_THRESHOLD_TIME));
-    rightBackMotor.configSupplyCurrentLimit(
-        new SupplyCurrentLimitConfiguration(true, DriveConstants.CURRENT_LIMIT,
-            DriveConstants.TRIGGER_THRESHOLD,
-            DriveConstants.TRIGGER_THRESHOLD_TIME));
+    rightBackMotor.follow(rightFrontMotor);
+    rightBackMotor.setInverted(TalonFXInvertType.FollowMaster);
+
+    configureMotor("Left Front Drive Motor", leftFrontMotor);
+    configureMotor("Left Back Drive Motor", leftBackMotor);
+    configureMotor("Right Front Drive Motor", rightFrontMotor);
+    configureMotor("Right Back Drive Motor", rightBackMotor);
 
 
     setBrakingMode(NeutralMode.Brake);
 
+    if (DriveConstants.VELOCITY_CONTROL_ENABLED) {
+      leftOutput = new VelocityMotorController(leftFrontMotor, DriveConstants.VELOCITY_PID_SLOT,
+          DriveConstants.MAX_VELOCITY_METERS_PER_SECOND, NATIVE_UNITS_PER_METER, feedforward);
+      rightOutput = new VelocityMotorController(rightFrontMotor, DriveConstants.VELOCITY_PID_SLOT,
+          DriveConstants.MAX_VELOCITY_METERS_PER_SECOND, NATIVE_UNITS_PER_METER, feedforward);
+    } else {
+      leftOutput = leftFrontMotor;
+      rightOutput = rightFrontMotor;
+    }
     differentialDrive =
         new OverclockedDifferentialDrive(
-            new MotorControllerGroup(leftFrontMotor, leftBackMotor),
-            new MotorControllerGroup(rightFrontMotor, rightBackMotor),
+            leftOutput,
+            rightOutput,
             DriveConstants.ACCELERATION_RATE_LIMIT);
+    differentialDrive.setRateLimits(DriveConstants.ACCELERATION_RATE_LIMIT, DriveConstants.DECELERATION_RATE_LIMIT);
+    differentialDrive.setJerkLimit(DriveConstants.JERK_LIMIT);
+    if (DriveConstants.HIGH_RATE_OUTPUT_ENABLED) {
+      differentialDrive.startHighRateOutput(DriveConstants.HIGH_RATE_OUTPUT_PERIOD);
+    }
+
+    leftFrontMotor.configSelectedFeedbackSensor(FeedbackDevice.IntegratedSensor);
+    rightFrontMotor.configSelectedFeedbackSensor(FeedbackDevice.IntegratedSensor);
+    // The navX sends at most 200 updates per second; ask for one per odometry update.
+    navx = new AHRS(SPI.Port.kMXP, (byte) Math.min(200, Math.round(1 / DriveConstants.ODOMETRY_PERIOD)));
+    odometry = new HighRateOdometry(
+        navx,
+        () -> nativeToMeters(leftFrontMotor.getSelectedSensorPosition()),
+        () -> nativeToMeters(rightFrontMotor.getSelectedSensorPosition()),
+        DriveConstants.POSE_HISTORY_SIZE);
+
+    if (RobotBase.isSimulation()) {
+      navxSim = new SimDeviceSim("navX-Sensor[0]");
+      drivetrainSim = new DifferentialDrivetrainSim(
+          DCMotor.getFalcon500(2),
+          DriveConstants.GEAR_RATIO,
+          DriveConstants.MOMENT_OF_INERTIA,
+          DriveConstants.MASS_KG,
+          DriveConstants.WHEEL_DIAMETER_METERS / 2,
+          DriveConstants.TRACK_WIDTH_METERS,
+          null);
+    }
+
+    SignalLogger signalLogger = SignalLogger.getInstance();
+    signalLogger.addMotor("DriveBase/Left Front", leftFrontMotor, SignalLogConstants.STATUS_FRAME_PERIOD_MS);
+    signalLogger.addMotor("DriveBase/Left Back", leftBackMotor, SignalLogConstants.FOLLOWER_STATUS_FRAME_PERIOD_MS);
+    signalLogger.addMotor("DriveBase/Right Front", rightFrontMotor, SignalLogConstants.STATUS_FRAME_PERIOD_MS);
+    signalLogger.addMotor("DriveBase/Right Back", rightBackMotor, SignalLogConstants.FOLLOWER_STATUS_FRAME_PERIOD_MS);
+
+    // The odometry reads the front encoders, so they must be sent as often as it runs, or it integrates stale
+    // positions.
+    int odometryPeriodMs = (int) Math.round(DriveConstants.ODOMETRY_PERIOD * 1000);
+    leftFrontMotor.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, odometryPeriodMs);
+    rightFrontMotor.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, odometryPeriodMs);
+    odometry.start(DriveConstants.ODOMETRY_PERIOD);
 
     CommandScheduler.getInstance().registerSubsystem(this);
   }
 
+  /**
+   * Submits the supply current limit and velocity gains of a drive motor to the {@link DeviceConfigurator}. The
+   * gains are only used by the front motors, in Velocity mode; the feedforward is sent with every setpoint, so kF is
+   * 0.
+   */
+  private static void configureMotor(String name, WPI_TalonFX motor) {
+    int slot = DriveConstants.VELOCITY_PID_SLOT;
+    ConfigHash hash = new ConfigHash("TalonFX")
+        .add("currentLimit", DriveConstants.CURRENT_LIMIT)
+        .add("triggerThreshold", DriveConstants.TRIGGER_THRESHOLD)
+        .add("triggerThresholdTime", DriveConstants.TRIGGER_THRESHOLD_TIME)
+        .add("slot", slot)
+        .add("kP", DriveConstants.VELOCITY_KP)
+        .add("kI", DriveConstants.VELOCITY_KI)
+        .add("kD", DriveConstants.VELOCITY_KD)
+        .add("kF", 0);
+    DeviceConfigurator.getInstance().submit(
+        new DeviceConfig(name, new CustomParamConfigMarker(motor, DeviceConfigConstants.TIMEOUT_MS), hash)
+            .add(ConfigStep.supplyCurrentLimit(motor,
+                new SupplyCurrentLimitConfiguration(true, DriveConstants.CURRENT_LIMIT,
+                    DriveConstants.TRIGGER_THRESHOLD,
+                    DriveConstants.TRIGGER_THRESHOLD_TIME)))
+            .add(ConfigStep.ctreParam(motor, "kP", ParamEnum.eProfileParamSlot_P, slot, DriveConstants.VELOCITY_KP,
+                timeoutMs -> motor.config_kP(slot, DriveConstants.VELOCITY_KP, timeoutMs)))
+            .add(ConfigStep.ctreParam(motor, "kI", ParamEnum.eProfileParamSlot_I, slot, DriveConstants.VELOCITY_KI,
+                timeoutMs -> motor.config_kI(slot, DriveConstants.VELOCITY_KI, timeoutMs)))
+            .add(ConfigStep.ctreParam(motor, "kD", ParamEnum.eProfileParamSlot_D, slot, DriveConstants.VELOCITY_KD,
+                timeoutMs -> motor.config_kD(slot, DriveConstants.VELOCITY_KD, timeoutMs)))
+            .add(ConfigStep.ctreParam(motor, "kF", ParamEnum.eProfileParamSlot_F, slot, 0,
+                timeoutMs -> motor.config_kF(slot, 0, timeoutMs))));
+  }
+
+  @Override
+  protected void profiledPeriodic() {
+    leftOutputEntry.set(getLeftOutput());
+    rightOutputEntry.set(getRightOutput());
+    brakingModeEntry.set(motorNeutralMode.name());
+
+    Pose2d pose = odometry.getPose();
+    poseXEntry.set(pose.getX());
+    poseYEntry.set(pose.getY());
+    poseHeadingEntry.set(pose.getRotation().getDegrees());
+  }
+
+  /**
+   * Steps the drivetrain simulation by one loop, driven by the commanded motor outputs, and feeds the simulated
+   * positions and velocities back into the TalonFX integrated sensors.
+   */
+  @Override
+  public void simulationPeriodic() {
+    if (simulationPaused) {
+      return;
+    }
+    double batteryVoltage = RobotController.getBatteryVoltage();
+    if (DriverStation.isEnabled() && DriveConstants.VELOCITY_CONTROL_ENABLED) {
+      // The simulated Talons run the velocity loop themselves. The left motors are inverted.
+      drivetrainSim.setInputs(
+          -leftFrontMotor.getSimCollection().getMotorOutputLeadVoltage(),
+          rightFrontMotor.getSimCollection().getMotorOutputLeadVoltage());
+    } else if (DriverStation.isEnabled()) {
+      drivetrainSim.setInputs(leftFrontMotor.get() * batteryVoltage, rightFrontMotor.get() * batteryVoltage);
+    } else {
+      drivetrainSim.setInputs(0, 0);
+    }
+    drivetrainSim.update(TimedRobot.kDefaultPeriod);
+    updateSimulatedSensors(batteryVoltage);
+  }
+
+  private void updateSimulatedSensors(double batteryVoltage) {
+    // The left motors are inverted (Clockwise), so their sensors count the other way.
+    TalonFXSimCollection leftSim = leftFrontMotor.getSimCollection();
+    leftSim.setBusVoltage(batteryVoltage);
+    leftSim.setIntegratedSensorRawPosition(metersToNative(-drivetrainSim.getLeftPositionMeters()));
+    leftSim.setIntegratedSensorVelocity(metersToNative(-drivetrainSim.getLeftVelocityMetersPerSecond() / 10));
+    TalonFXSimCollection rightSim = rightFrontMotor.getSimCollection();
+    rightSim.setBusVoltage(batteryVoltage);
+    rightSim.setIntegratedSensorRawPosition(metersToNative(drivetrainSim.getRightPositionMeters()));
+    rightSim.setIntegratedSensorVelocity(metersToNative(drivetrainSim.getRightVelocityMetersPerSecond() / 10));
+
+    // The navX yaw is clockwise positive.
+    navxSim.getDouble("Yaw").set(-drivetrainSim.getHeading().getDegrees());
+  }
+
+  /**
+   * Sets how fast the drive outputs may speed up. They may always slow down at least as fast as
+   * DriveConstants.DECELERATION_RATE_LIMIT.
+   *
+   * @param rateLimit The rate limit, in units per second
+   */
+  public void setAccelerationRateLimit(double rateLimit) {
+    differentialDrive.setRateLimits(rateLimit, Math.max(rateLimit, DriveConstants.DECELERATION_RATE_LIMIT));
+  }
+
+  /**
+   * Returns the current the drive would draw at the outputs last requested, at worst, in amps.
+   */
+  public double getPredictedCurrent() {
+    return (Math.abs(differentialDrive.getLeftRequest()) + Math.abs(differentialDrive.getRightRequest()))
+        * 2 * DriveConstants.CURRENT_LIMIT;
+  }
+
+  /**
+   * Scales every drive output, e.g. to stay within the robot's power budget.
+   *
+   * @param scale The scale, from 0 (stopped) to 1 (unchanged)
+   */
+  public void setOutputScale(double scale) {
+    differentialDrive.setMaxOutput(scale);
+  }
+
+  /**
+   * Returns the output last commanded to the left side, in [-1, 1].
+   */
+  public double getLeftOutput() {
+    return leftOutput.get();
+  }
+
+  /**
+   * Returns the output last commanded to the right side, in [-1, 1].
+   */
+  public double getRightOutput() {
+    return rightOutput.get();
+  }
+
+  /**
+   * Returns the latest pose from the odometry. Never blocks on the odometry thread.
+   */
+  public Pose2d getPose() {
+    return odometry.getPose();
+  }
+
+  /**
+   * Returns the pose at a past time, for matching up measurements that were taken with some latency.
+   *
+   * @param timestamp The FPGA time, in microseconds
+   */
+  public Pose2d getPose(long timestamp) {
+    return odometry.getPose(timestamp);
+  }
+
+  /**
+   * Resets the odometry to the given pose. Does nothing while the {@link OutputGate} is closed, so that warming up a
+   * command that resets the pose does not clear the odometry and its history.
+   *
+   * @param pose The pose the robot is at now
+   */
+  public void resetPose(Pose2d pose) {
+    if (OutputGate.isInhibited()) {
+      return;
+    }
+    odometry.resetPose(pose);
+  }
+
+  /**
+   * Returns the pose of the simulated drivetrain. Only available in simulation.
+   */
+  public Pose2d getSimulatedPose() {
+    return drivetrainSim.getPose();
+  }
+
+  /**
+   * Puts the simulated drivetrain back at the origin, at rest, and resets the odometry to match. Only available in
+   * simulation.
+   */
+  public void resetSimulation() {
+    drivetrainSim.setState(new Matrix<>(Nat.N7(), Nat.N1()));
+    updateSimulatedSensors(RobotController.getBatteryVoltage());
+    odometry.resetPose(new Pose2d());
+  }
+
+  /**
+   * Stops or resumes stepping the drivetrain simulation. The simulation model allocates every step, so tests that
+   * measure the allocations of the robot code pause it. Only available in simulation.
+   *
+   * @param paused Whether the simulated drivetrain stays where it is
+   */
+  public void setSimulationPaused(boolean paused) {
+    simulationPaused = paused;
+  }
+
+  private static int metersToNative(double meters) {
+    double wheelRotations = meters / (Math.PI * DriveConstants.WHEEL_DIAMETER_METERS);
+    return (int) (wheelRotations * DriveConstants.GEAR_RATIO * DriveConstants.ENCODER_COUNTS_PER_REVOLUTION);
+  }
+
+  private static double nativeToMeters(double nativeUnits) {
+    double wheelRotations = nativeUnits / (DriveConstants.GEAR_RATIO * DriveConstants.ENCODER_COUNTS_PER_REVOLUTION);
+    return wheelRotations * Math.PI * DriveConstants.WHEEL_DIAMETER_METERS;
+  }
+
   /**
    * Toggles the {@link NeutralMode} between Coast and Brake.
    */
@@ -119,6 +409,23 @@ public class DriveBase extends SubsystemBase {
     differentialDrive.arcadeDrive(linearSpeed, angularSpeed);
   }
 
+  /**
+   * Drives each side at the given wheel speed. In velocity control mode the motors hold the speeds themselves;
+   * otherwise the speeds are driven open loop through the characterized feedforward.
+   *
+   * @param leftVelocity The left wheel speed, in meters per second
+   * @param rightVelocity The right wheel speed, in meters per second
+   */
+  public void driveWheelSpeeds(double leftVelocity, double rightVelocity) {
+    if (DriveConstants.VELOCITY_CONTROL_ENABLED) {
+      differentialDrive.tankDriveRaw(
+          leftVelocity / DriveConstants.MAX_VELOCITY_METERS_PER_SECOND,
+          rightVelocity / DriveConstants.MAX_VELOCITY_METERS_PER_SECOND);
+    } else {
+      differentialDrive.tankDriveVolts(feedforward.calculate(leftVelocity), feedforward.calculate(rightVelocity));
+    }
+  }
+
   /**
    * Drives the motors using tank drive controls.
    *
@@ -9,23 +9,93 @@ import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.VictorSPX;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
+import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.DoubleSolenoid;
+import edu.wpi.first.wpilibj.PneumaticHub;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandBase;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import edu.wpi.first.wpilibj2.command.Subsystem;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import edu.wpi.first.wpilibj2.command.WaitCommand;
+import frc.robot.Constants.DeviceConfigConstants;
 import frc.robot.Constants.IntakeConstants;
+import frc.robot.Constants.IntakeConstants.IntakeLimitChannels;
+import overclocked.stl.config.ConfigHash;
+import overclocked.stl.config.ConfigStep;
+import overclocked.stl.config.CustomParamConfigMarker;
+import overclocked.stl.config.DeviceConfig;
+import overclocked.stl.config.DeviceConfigurator;
+import overclocked.stl.motorcontrol.OutputGate;
+import overclocked.stl.pneumatics.ActuationDetector;
+import overclocked.stl.profiling.ProfiledSubsystemBase;
+import overclocked.stl.sensors.SensorSnapshot;
+import overclocked.stl.sensors.SensorSnapshotManager;
+import overclocked.stl.telemetry.TelemetryRegistry;
+import overclocked.stl.telemetry.TelemetryRegistry.BooleanEntry;
+import overclocked.stl.telemetry.TelemetryRegistry.DoubleEntry;
+import overclocked.stl.telemetry.TelemetryRegistry.StringEntry;
 
 /**
  * A subsystem that controls the intake on a robot.
+ *
+ * <p>
+ * Extending and retracting move one solenoid, wait for its cylinder to finish moving, then move the other. A
+ * cylinder is done when its limit switch (if fitted) is pressed, or when the stored pressure on the PH has dipped
+ * and recovered; IntakeConstants.SOLENOID_DELAY_TIME is only a timeout.
+ *
+ * <p>
+ * The intake is always in one of the {@link State}s, which is re-evaluated every loop. The rollers only spin while
+ * it is {@link State#EXTENDED}; a spin speed set in any other state is kept and applied once extension finishes.
  */
-public class Intake extends SubsystemBase {
+public class Intake extends ProfiledSubsystemBase {
+  /**
+   * The states of the intake.
+   */
+  public enum State {
+    /** Both cylinders are in. */
+    RETRACTED,
+    /** An extension is in progress. */
+    EXTENDING,
+    /** Both cylinders are out. The rollers may spin. */
+    EXTENDED,
+    /** A retraction is in progress. */
+    RETRACTING,
+    /** The solenoids are off, or the cylinders are in different positions after an interrupted cycle. */
+    NEUTRAL
+  }
+
   private final DoubleSolenoid topSolenoid;
   private final DoubleSolenoid bottomSolenoid;
   private final WPI_TalonSRX intakeMotor;
+  private final PneumaticHub pneumaticHub = new PneumaticHub();
+  private final DigitalInput topExtendedLimit;
+  private final DigitalInput topRetractedLimit;
+  private final DigitalInput bottomExtendedLimit;
+  private final DigitalInput bottomRetractedLimit;
+  private Runnable actuationListener = () -> {};
+
+  private final Sensors sensors = new Sensors();
+
+  private final DoubleEntry spinSpeedEntry = TelemetryRegistry.getInstance().addDouble("Intake Spin Speed", 5);
+  private final BooleanEntry retractedEntry = TelemetryRegistry.getInstance().addBoolean("Intake Retracted", 5);
+  private final BooleanEntry extendedEntry = TelemetryRegistry.getInstance().addBoolean("Intake Extended", 5);
+  private final DoubleEntry extensionTimeEntry = TelemetryRegistry.getInstance().addDouble("Intake Extension Time", 5);
+  private final DoubleEntry retractionTimeEntry =
+      TelemetryRegistry.getInstance().addDouble("Intake Retraction Time", 5);
+  private final DoubleEntry stageTimeoutsEntry = TelemetryRegistry.getInstance().addDouble("Intake Stage Timeouts", 5);
+  private final StringEntry stateEntry = TelemetryRegistry.getInstance().addString("Intake State");
+  private int stageTimeouts = 0;
+
+  private final Rollers rollers = new Rollers();
+  private State state = State.NEUTRAL;
+  // The cycle in progress (EXTENDING or RETRACTING), or null.
+  private State activeCycle = null;
+  private double requestedSpinSpeed = 0;
+  private double appliedSpinSpeed = Double.NaN;
 
   /**
    * Constructs an Intake with a {@link VictorSPX} with the given CAN ID and a
@@ -39,31 +109,145 @@ public class Intake extends SubsystemBase {
    */
   public Intake(int intakeMotorID, int topForwardChannel,
       int topReverseChannel, int bottomForwardChannel, int bottomReverseChannel) {
+    this(intakeMotorID, topForwardChannel, topReverseChannel, bottomForwardChannel, bottomReverseChannel,
+        IntakeLimitChannels.TOP_EXTENDED,
+        IntakeLimitChannels.TOP_RETRACTED,
+        IntakeLimitChannels.BOTTOM_EXTENDED,
+        IntakeLimitChannels.BOTTOM_RETRACTED);
+  }
+
+  /**
+   * Constructs an Intake like {@link #Intake(int, int, int, int, int)}, with limit switches on the given DIO channels
+   * instead of the ones in IntakeLimitChannels.
+   *
+   * @param intakeMotorID The CAN ID of the intake motor
+   * @param topForwardChannel The forward channel of the top solenoid
+   * @param topReverseChannel The reverse channel of the top solenoid
+   * @param bottomForwardChannel The forward channel of the bottom solenoid
+   * @param bottomReverseChannel The reverse channel of the bottom solenoid
+   * @param topExtendedLimitChannel The channel of the top cylinder's extended limit switch, -1 if not fitted
+   * @param topRetractedLimitChannel The channel of the top cylinder's retracted limit switch, -1 if not fitted
+   * @param bottomExtendedLimitChannel The channel of the bottom cylinder's extended limit switch, -1 if not fitted
+   * @param bottomRetractedLimitChannel The channel of the bottom cylinder's retracted limit switch, -1 if not fitted
+   */
+  public Intake(int intakeMotorID, int topForwardChannel, int topReverseChannel, int bottomForwardChannel,
+      int bottomReverseChannel, int topExtendedLimitChannel, int topRetractedLimitChannel,
+      int bottomExtendedLimitChannel, int bottomRetractedLimitChannel) {
+    topExtendedLimit = limitSwitch(topExtendedLimitChannel);
+    topRetractedLimit = limitSwitch(topRetractedLimitChannel);
+    bottomExtendedLimit = limitSwitch(bottomExtendedLimitChannel);
+    bottomRetractedLimit = limitSwitch(bottomRetractedLimitChannel);
     topSolenoid =
         new DoubleSolenoid(PneumaticsModuleType.REVPH, topForwardChannel, topReverseChannel);
     bottomSolenoid =
         new DoubleSolenoid(PneumaticsModuleType.REVPH, bottomForwardChannel, bottomReverseChannel);
     intakeMotor = new WPI_TalonSRX(intakeMotorID);
-    intakeMotor.configSupplyCurrentLimit(
-        new SupplyCurrentLimitConfiguration(true,
-            IntakeConstants.CURRENT_LIMIT,
-            IntakeConstants.TRIGGER_THRESHOLD,
-            IntakeConstants.TRIGGER_THRESHOLD_TIME));
+    DeviceConfigurator.getInstance().submit(
+        new DeviceConfig("Intake Motor",
+            new CustomParamConfigMarker(intakeMotor, DeviceConfigConstants.TIMEOUT_MS),
+            new ConfigHash("TalonSRX")
+                .add("currentLimit", IntakeConstants.CURRENT_LIMIT)
+                .add("triggerThreshold", IntakeConstants.TRIGGER_THRESHOLD)
+                .add("triggerThresholdTime", IntakeConstants.TRIGGER_THRESHOLD_TIME))
+            .add(ConfigStep.supplyCurrentLimit(intakeMotor,
+                new SupplyCurrentLimitConfiguration(true,
+                    IntakeConstants.CURRENT_LIMIT,
+                    IntakeConstants.TRIGGER_THRESHOLD,
+                    IntakeConstants.TRIGGER_THRESHOLD_TIME))));
     intakeMotor.setNeutralMode(NeutralMode.Brake);
+    SensorSnapshotManager.getInstance().register(sensors);
+    updateState();
     CommandScheduler.getInstance().registerSubsystem(this);
   }
 
   /**
-   * Sets the intake motor speed.
+   * Sets a listener that is called every time a solenoid is moved out or in, e.g. {@link Pneumatics#recordActuation()}
+   * so that the compressor schedule knows how much air the intake uses.
+   *
+   * @param actuationListener The listener
+   */
+  public void setActuationListener(Runnable actuationListener) {
+    this.actuationListener = actuationListener;
+  }
+
+  private static DigitalInput limitSwitch(int channel) {
+    return channel < 0 ? null : new DigitalInput(channel);
+  }
+
+  /**
+   * Sets a solenoid, and notifies the actuation listener if that moves it. Does nothing while the {@link OutputGate}
+   * is closed, so that warming up the cycles does not move the cylinders.
+   */
+  private void actuate(DoubleSolenoid solenoid, DoubleSolenoid.Value value) {
+    if (OutputGate.isInhibited()) {
+      return;
+    }
+    if (value != DoubleSolenoid.Value.kOff && solenoid.get() != value) {
+      actuationListener.run();
+    }
+    solenoid.set(value);
+  }
+
+  /**
+   * Requests an intake motor speed. The motor only spins while the intake is {@link State#EXTENDED}; in any other
+   * state the request is kept until extension finishes.
    *
    * @param newSpeed The speed of the intake motor
-   * @throws IllegalStateException if trying to set speed while retracted
    */
-  public void setSpinSpeed(double newSpeed) throws IllegalStateException {
-    if (isRetracted() && newSpeed != 0) {
-      throw new IllegalStateException();
+  public void setSpinSpeed(double newSpeed) {
+    requestedSpinSpeed = newSpeed;
+    updateSpin();
+  }
+
+  /**
+   * Returns the state of the intake, as of the last update.
+   */
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Returns whether the rollers are allowed to spin.
+   */
+  public boolean canSpin() {
+    return state == State.EXTENDED;
+  }
+
+  /**
+   * Re-evaluates the state from the cycle in progress and the solenoid positions.
+   */
+  private void updateState() {
+    if (activeCycle != null) {
+      state = activeCycle;
+    } else if (isExtended()) {
+      state = State.EXTENDED;
+    } else if (isRetracted()) {
+      state = State.RETRACTED;
+    } else {
+      state = State.NEUTRAL;
+    }
+  }
+
+  /**
+   * Sends the requested spin speed if the state allows it, or stops the rollers if it does not. Only writes to the
+   * motor when the applied speed changes.
+   */
+  private void updateSpin() {
+    double speed = canSpin() ? requestedSpinSpeed : 0.0;
+    if (speed != appliedSpinSpeed && !OutputGate.isInhibited()) {
+      intakeMotor.set(ControlMode.PercentOutput, speed);
+      appliedSpinSpeed = speed;
     }
-    intakeMotor.set(ControlMode.PercentOutput, newSpeed);
+    spinSpeedEntry.set(speed);
+  }
+
+  @Override
+  protected void profiledPeriodic() {
+    updateState();
+    updateSpin();
+    stateEntry.set(state.name());
+    retractedEntry.set(isRetracted());
+    extendedEntry.set(isExtended());
   }
 
   /**
@@ -91,45 +275,165 @@ public class Intake extends SubsystemBase {
   }
 
   /**
-   * Returns the extension state of the top solenoid.
+   * Returns the extension state of the top solenoid, as read at the start of this loop.
    */
   public DoubleSolenoid.Value getTopExtension() {
-    return topSolenoid.get();
+    return sensors.topExtension;
   }
 
   /**
-   * Returns the extension state of the bottom solenoid.
+   * Returns the extension state of the bottom solenoid, as read at the start of this loop.
    */
   public DoubleSolenoid.Value getBottomExtension() {
-    return bottomSolenoid.get();
+    return sensors.bottomExtension;
+  }
+
+  /**
+   * Returns the FPGA time, in microseconds, at which the intake solenoids were last read.
+   */
+  public long getSensorTimestamp() {
+    return sensors.getTimestamp();
   }
 
   /**
    * Retracts the intake and sets spin speed to 0.
    */
   public Command getRetractionCommand() {
-    return new SequentialCommandGroup(
-        new InstantCommand(() -> bottomSolenoid.set(DoubleSolenoid.Value.kReverse)),
-        new WaitCommand(IntakeConstants.SOLENOID_DELAY_TIME),
-        new InstantCommand(() -> topSolenoid.set(DoubleSolenoid.Value.kReverse)));
+    return new CycleCommand(State.RETRACTING, retractionTimeEntry,
+        new StageCommand(bottomSolenoid, DoubleSolenoid.Value.kReverse, bottomRetractedLimit),
+        new InstantCommand(() -> actuate(topSolenoid, DoubleSolenoid.Value.kReverse)));
   }
 
   /**
    * Sets the intake to Neutral extension.
    */
   public Command getNeutralExtensionCommand() {
-    return new SequentialCommandGroup(
+    SequentialCommandGroup neutral = new SequentialCommandGroup(
         new InstantCommand(() -> bottomSolenoid.set(DoubleSolenoid.Value.kOff)),
         new InstantCommand(() -> topSolenoid.set(DoubleSolenoid.Value.kOff)));
+    neutral.addRequirements(this);
+    return neutral;
   }
 
   /**
    * Extends the intake.
    */
   public Command getExtensionCommand() {
-    return new SequentialCommandGroup(
-        new InstantCommand(() -> topSolenoid.set(DoubleSolenoid.Value.kForward)),
-        new WaitCommand(IntakeConstants.SOLENOID_DELAY_TIME),
-        new InstantCommand(() -> bottomSolenoid.set(DoubleSolenoid.Value.kForward)));
+    return new CycleCommand(State.EXTENDING, extensionTimeEntry,
+        new StageCommand(topSolenoid, DoubleSolenoid.Value.kForward, topExtendedLimit),
+        new InstantCommand(() -> actuate(bottomSolenoid, DoubleSolenoid.Value.kForward)));
+  }
+
+  /**
+   * Returns the requirement of the commands that spin the rollers. It is separate from the Intake itself, which the
+   * extension and retraction cycles require, so that a spin can be requested while a cycle runs.
+   */
+  public Subsystem getRollers() {
+    return rollers;
+  }
+
+  private void setActiveCycle(State cycle) {
+    activeCycle = cycle;
+    updateState();
+    updateSpin();
+  }
+
+  /**
+   * Runs the stages of an extension or retraction in order as the given cycle state, and publishes how long they took
+   * once they finish. Requires the Intake, so that starting a cycle interrupts the one in progress.
+   */
+  private final class CycleCommand extends SequentialCommandGroup {
+    private final State cycle;
+    private final DoubleEntry timeEntry;
+    private long startTime;
+
+    private CycleCommand(State cycle, DoubleEntry timeEntry, Command... stages) {
+      super(stages);
+      this.cycle = cycle;
+      this.timeEntry = timeEntry;
+      addRequirements(Intake.this);
+    }
+
+    @Override
+    public void initialize() {
+      startTime = RobotController.getFPGATime();
+      setActiveCycle(cycle);
+      super.initialize();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+      super.end(interrupted);
+      if (!interrupted) {
+        timeEntry.set((RobotController.getFPGATime() - startTime) * 1e-6);
+      }
+      setActiveCycle(null);
+    }
+  }
+
+  /**
+   * The requirement of the roller commands.
+   */
+  private static final class Rollers extends SubsystemBase {}
+
+  /**
+   * Moves one solenoid, and finishes once its cylinder has finished moving or the stage has timed out.
+   */
+  private final class StageCommand extends CommandBase {
+    private final DoubleSolenoid solenoid;
+    private final DoubleSolenoid.Value value;
+    private final DigitalInput limit;
+    private final ActuationDetector detector = new ActuationDetector(
+        IntakeConstants.ACTUATION_DIP_THRESHOLD,
+        IntakeConstants.ACTUATION_RECOVERY_THRESHOLD,
+        IntakeConstants.ACTUATION_SETTLE_TIME);
+    private final long timeoutMicros = (long) (IntakeConstants.SOLENOID_DELAY_TIME * 1e6);
+    private long startTime;
+    private boolean alreadyThere;
+
+    private StageCommand(DoubleSolenoid solenoid, DoubleSolenoid.Value value, DigitalInput limit) {
+      this.solenoid = solenoid;
+      this.value = value;
+      this.limit = limit;
+    }
+
+    @Override
+    public void initialize() {
+      startTime = RobotController.getFPGATime();
+      alreadyThere = solenoid.get() == value;
+      detector.start(sensors.pressure, sensors.getTimestamp());
+      actuate(solenoid, value);
+    }
+
+    @Override
+    public boolean isFinished() {
+      if (alreadyThere || (limit != null && !limit.get())) {
+        return true;
+      }
+      if (detector.update(sensors.pressure, sensors.getTimestamp())) {
+        return true;
+      }
+      if (RobotController.getFPGATime() - startTime >= timeoutMicros) {
+        stageTimeoutsEntry.set(++stageTimeouts);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * The intake solenoid states, read once per loop.
+   */
+  private final class Sensors extends SensorSnapshot {
+    private DoubleSolenoid.Value topExtension;
+    private DoubleSolenoid.Value bottomExtension;
+    private double pressure;
+
+    @Override
+    protected void read() {
+      topExtension = topSolenoid.get();
+      bottomExtension = bottomSolenoid.get();
+      pressure = pneumaticHub.getPressure(IntakeConstants.PRESSURE_SENSOR_CHANNEL);
+    }
   }
 }
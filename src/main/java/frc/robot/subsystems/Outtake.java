@@ -5,16 +5,32 @@ import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.OuttakeConstants;
+import frc.robot.Constants.SignalLogConstants;
+import overclocked.stl.config.ConfigHash;
+import overclocked.stl.config.ConfigMarkerFile;
+import overclocked.stl.config.DeviceConfigurator;
+import overclocked.stl.logging.SignalLogger;
+import overclocked.stl.motorcontrol.DeduplicatedMotorController;
+import overclocked.stl.profiling.ProfiledSubsystemBase;
+import overclocked.stl.telemetry.TelemetryRegistry;
+import overclocked.stl.telemetry.TelemetryRegistry.DoubleEntry;
 
 /**
  * A subsystem that controls the Outtake on a robot.
  */
-public class Outtake extends SubsystemBase {
+public class Outtake extends ProfiledSubsystemBase {
   private final CANSparkMax outtakeMotor;
   private final CANSparkMax outtakeMotor2;
 
+  private final DeduplicatedMotorController outtakeOutput;
+  private double requestedSpeed = 0;
+  private double outputScale = 1.0;
+
+  private final DoubleEntry speedEntry = TelemetryRegistry.getInstance().addDouble("Outtake Speed", 5);
+  private final DoubleEntry skippedWritesEntry =
+      TelemetryRegistry.getInstance().addDouble("Outtake Skipped CAN Writes", 50);
+
   /**
    * Constructs an Outtake with a {@link CANSparkMax} at the given CAN ID.
    *
@@ -26,7 +42,11 @@ public class Outtake extends SubsystemBase {
   }
 
   /**
-   * Constructs an Outtake with a {@link CANSparkMax} at the given CAN ID.
+   * Constructs an Outtake with a {@link CANSparkMax} at the given CAN ID. The second motor follows the first.
+   *
+   * <p>
+   * The controllers are only reset and their flash burned when their configuration has changed since the last boot,
+   * or when a controller does not read back as configured (e.g. because it was replaced).
    *
    * @param outtakeId The CAN ID of the first Outtake Motor
    * @param outtakeId2 The CAN ID of the second Outtake Motor
@@ -34,25 +54,81 @@ public class Outtake extends SubsystemBase {
    */
   public Outtake(int outtakeId, int outtakeId2, MotorType motorType) {
     outtakeMotor = new CANSparkMax(outtakeId, motorType);
-    outtakeMotor.restoreFactoryDefaults();
-    outtakeMotor.setSmartCurrentLimit(OuttakeConstants.CURRENT_LIMIT);
-    outtakeMotor.setIdleMode(IdleMode.kCoast);
-    outtakeMotor.burnFlash();
+    DeviceConfigurator.applyIfChanged(
+        ConfigMarkerFile.getInstance().marker("SparkMax " + outtakeId,
+            () -> !outtakeMotor.isFollower() && outtakeMotor.getIdleMode() == IdleMode.kCoast),
+        configHash().add("leader", -1),
+        () -> {
+          outtakeMotor.restoreFactoryDefaults();
+          outtakeMotor.setSmartCurrentLimit(OuttakeConstants.CURRENT_LIMIT);
+          outtakeMotor.setIdleMode(IdleMode.kCoast);
+          outtakeMotor.burnFlash();
+        });
     outtakeMotor2 = new CANSparkMax(outtakeId2, motorType);
-    outtakeMotor2.restoreFactoryDefaults();
-    outtakeMotor2.setSmartCurrentLimit(OuttakeConstants.CURRENT_LIMIT);
-    outtakeMotor2.setIdleMode(IdleMode.kCoast);
-    outtakeMotor2.burnFlash();
+    DeviceConfigurator.applyIfChanged(
+        ConfigMarkerFile.getInstance().marker("SparkMax " + outtakeId2,
+            () -> outtakeMotor2.isFollower() && outtakeMotor2.getIdleMode() == IdleMode.kCoast),
+        configHash().add("leader", outtakeId),
+        () -> {
+          outtakeMotor2.restoreFactoryDefaults();
+          outtakeMotor2.setSmartCurrentLimit(OuttakeConstants.CURRENT_LIMIT);
+          outtakeMotor2.setIdleMode(IdleMode.kCoast);
+          outtakeMotor2.follow(outtakeMotor);
+          outtakeMotor2.burnFlash();
+        });
+    outtakeOutput = new DeduplicatedMotorController(outtakeMotor);
+    SignalLogger signalLogger = SignalLogger.getInstance();
+    signalLogger.addMotor("Outtake/Top", outtakeMotor, SignalLogConstants.STATUS_FRAME_PERIOD_MS);
+    signalLogger.addMotor("Outtake/Bottom", outtakeMotor2, SignalLogConstants.FOLLOWER_STATUS_FRAME_PERIOD_MS);
     CommandScheduler.getInstance().registerSubsystem(this);
   }
 
+  /**
+   * Returns the hash of the configuration shared by both Outtake motors.
+   */
+  private static ConfigHash configHash() {
+    return new ConfigHash("CANSparkMax")
+        .add("smartCurrentLimit", OuttakeConstants.CURRENT_LIMIT)
+        .add("idleMode", IdleMode.kCoast);
+  }
+
   /**
    * Sets the Outtake {@link CANSparkMax} motors with a given speed.
    *
    * @param speed The speed to set the {@link CANSparkMax} motor to.
    */
   public void setSpeed(double speed) {
-    outtakeMotor.set(speed);
-    outtakeMotor2.set(speed);
+    requestedSpeed = speed;
+    outtakeOutput.set(speed * outputScale);
+    speedEntry.set(speed);
+  }
+
+  /**
+   * Returns the speed last set with {@link #setSpeed(double)}.
+   */
+  public double getSpeed() {
+    return requestedSpeed;
+  }
+
+  /**
+   * Returns the current the Outtake would draw at the speed last set, at worst, in amps.
+   */
+  public double getPredictedCurrent() {
+    return Math.abs(requestedSpeed) * 2 * OuttakeConstants.CURRENT_LIMIT;
+  }
+
+  /**
+   * Scales the speed, e.g. to stay within the robot's power budget.
+   *
+   * @param scale The scale, from 0 (stopped) to 1 (unchanged)
+   */
+  public void setOutputScale(double scale) {
+    outputScale = scale;
+    outtakeOutput.set(requestedSpeed * scale);
+  }
+
+  @Override
+  protected void profiledPeriodic() {
+    skippedWritesEntry.set(outtakeOutput.getSkippedWrites());
   }
 }
@@ -4,24 +4,112 @@
 
 package frc.robot.subsystems;
 
+import java.util.function.BooleanSupplier;
+
 import edu.wpi.first.wpilibj.Compressor;
 import edu.wpi.first.wpilibj.CompressorConfigType;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj.RobotController;
 import frc.robot.Constants.PneumaticsConstants;
+import overclocked.stl.logging.SignalLogger;
+import overclocked.stl.power.CompressorScheduler;
+import overclocked.stl.profiling.ProfiledSubsystemBase;
+import overclocked.stl.sensors.SensorSnapshot;
+import overclocked.stl.sensors.SensorSnapshotManager;
+import overclocked.stl.telemetry.TelemetryRegistry;
+import overclocked.stl.telemetry.TelemetryRegistry.BooleanEntry;
+import overclocked.stl.telemetry.TelemetryRegistry.DoubleEntry;
 
 /**
  * A subsystem that controls pneumatics on a robot.
+ *
+ * <p>
+ * The compressor is scheduled by a {@link CompressorScheduler}: it always runs below the minimum pressure or the
+ * reserve that the next intake cycles need, and otherwise only fills up while the robot is not under high demand.
+ * High demand is whatever {@link #setHighDemandSupplier(BooleanSupplier)} says, or a sagging battery.
  */
-public class Pneumatics extends SubsystemBase {
+public class Pneumatics extends ProfiledSubsystemBase {
   private final Compressor compressor;
+  private final CompressorScheduler scheduler = new CompressorScheduler(
+      PneumaticsConstants.DEFAULT_MIN_PRESSURE,
+      PneumaticsConstants.DEFAULT_MAX_PRESSURE,
+      PneumaticsConstants.WORKING_PRESSURE,
+      PneumaticsConstants.PRESSURE_PER_ACTUATION,
+      PneumaticsConstants.RESERVE_INTAKE_CYCLES * PneumaticsConstants.ACTUATIONS_PER_INTAKE_CYCLE,
+      PneumaticsConstants.IDLE_RESTART_HYSTERESIS,
+      PneumaticsConstants.DEMAND_HOLD_TIME);
+  private BooleanSupplier highDemandSupplier = () -> false;
+  private double maxPressure;
+  private boolean enabled;
+  private boolean scheduledToRun = false;
+  private boolean compressing = false;
+  private boolean powerInhibited = false;
+
+  private final Sensors sensors = new Sensors();
+
+  private final DoubleEntry pressureEntry = TelemetryRegistry.getInstance().addDouble("Stored Pressure", 10);
+  private final DoubleEntry currentEntry = TelemetryRegistry.getInstance().addDouble("Compressor Current", 10);
+  private final BooleanEntry enabledEntry = TelemetryRegistry.getInstance().addBoolean("Compressor Enabled", 10);
+  private final DoubleEntry reserveEntry = TelemetryRegistry.getInstance().addDouble("Reserve Pressure", 10);
 
   /**
    * Creates a Pneumatics subsystem with the default module.
    */
   public Pneumatics() {
     compressor = new Compressor(PneumaticsModuleType.REVPH);
+    compressor.disable();
     this.enableCompressor();
+    SignalLogger.getInstance().addChannel("Pneumatics/Pressure", compressor::getPressure);
+    SensorSnapshotManager.getInstance().register(sensors);
+  }
+
+  @Override
+  protected void profiledPeriodic() {
+    pressureEntry.set(getStoredPressure());
+    currentEntry.set(getCompressorCurrent());
+    enabledEntry.set(isCompressorEnabled());
+
+    boolean highDemand = highDemandSupplier.getAsBoolean()
+        || RobotController.getBatteryVoltage() < PneumaticsConstants.HIGH_DEMAND_VOLTAGE;
+    scheduledToRun = scheduler.update(getStoredPressure(), isCompressorEnabled(), highDemand);
+    reserveEntry.set(scheduler.getReservePressure());
+    updateCompressor();
+  }
+
+  /**
+   * Turns the compressor on or off if the schedule, the power budget or the enabled state has changed. The power
+   * budget cannot stop the compressor below the floor pressure.
+   */
+  private void updateCompressor() {
+    boolean run = enabled && scheduledToRun
+        && (!powerInhibited || getStoredPressure() < scheduler.getFloorPressure());
+    if (run == compressing) {
+      return;
+    }
+    compressing = run;
+    if (run) {
+      // The hub's own analog control still stops the compressor at the maximum pressure.
+      compressor.enableAnalog(maxPressure - PneumaticsConstants.RUN_HYSTERESIS, maxPressure);
+    } else {
+      compressor.disable();
+    }
+  }
+
+  /**
+   * Sets what counts as high demand, during which the compressor only runs to keep the reserve.
+   *
+   * @param highDemandSupplier Returns whether the mechanisms need the current right now
+   */
+  public void setHighDemandSupplier(BooleanSupplier highDemandSupplier) {
+    this.highDemandSupplier = highDemandSupplier;
+  }
+
+  /**
+   * Records that a solenoid was actuated, so that the air use model can learn from it. Meant to be passed to
+   * {@link Intake#setActuationListener(Runnable)}.
+   */
+  public void recordActuation() {
+    scheduler.recordActuation(getStoredPressure());
   }
 
   /**
@@ -33,34 +121,46 @@ public class Pneumatics extends SubsystemBase {
   }
 
   /**
-   * Enables compressor closed loop control with analog input using specified min and max pressure.
+   * Enables the scheduled compressor using specified min and max pressure.
    *
-   * @param minPressure The minimum pressure in PSI to enable compressor
+   * @param minPressure The pressure in PSI below which the compressor always runs
    * @param maxPressure The maximum pressure in PSI to disable compressor
    */
   public void enableCompressor(double minPressure, double maxPressure) {
-    compressor.enableAnalog(minPressure, maxPressure);
+    this.maxPressure = maxPressure;
+    scheduler.setPressureRange(minPressure, maxPressure);
+    enabled = true;
+    // Restart with the new range on the next update.
+    compressing = false;
+    compressor.disable();
   }
 
   /**
-   * Returns whether the compressor is enabled.
+   * Returns whether the compressor is enabled, as read at the start of this loop.
    */
   public boolean isCompressorEnabled() {
-    return compressor.enabled();
+    return sensors.compressorEnabled;
   }
 
   /**
-   * Returns the analog sensor pressure.
+   * Returns the analog sensor pressure, as read at the start of this loop.
    */
   public double getStoredPressure() {
-    return compressor.getPressure();
+    return sensors.storedPressure;
   }
 
   /**
-   * Returns the current being used by the compressor.
+   * Returns the current being used by the compressor, as read at the start of this loop.
    */
   public double getCompressorCurrent() {
-    return compressor.getCurrent();
+    return sensors.compressorCurrent;
+  }
+
+  /**
+   * Returns the FPGA time, in microseconds, at which the pneumatics sensors were last read.
+   */
+  public long getSensorTimestamp() {
+    return sensors.getTimestamp();
   }
 
   /**
@@ -74,6 +174,42 @@ public class Pneumatics extends SubsystemBase {
    * Disables the compressor.
    */
   public void disableCompressor() {
-    compressor.disable();
+    enabled = false;
+    updateCompressor();
+  }
+
+  /**
+   * Returns the current the compressor would draw if it runs as scheduled, in amps.
+   */
+  public double getPredictedCurrent() {
+    return enabled && scheduledToRun ? PneumaticsConstants.COMPRESSOR_CURRENT : 0;
+  }
+
+  /**
+   * Turns the compressor off while the scale is below 1, e.g. to stay within the robot's power budget. The
+   * compressor cannot run at part power, so any reduction stops it until the full budget is available again, unless
+   * the pressure is below the floor.
+   *
+   * @param scale The scale, from 0 to 1
+   */
+  public void setOutputScale(double scale) {
+    powerInhibited = scale < 1.0;
+    updateCompressor();
+  }
+
+  /**
+   * The pneumatics sensor values, read once per loop.
+   */
+  private final class Sensors extends SensorSnapshot {
+    private boolean compressorEnabled;
+    private double storedPressure;
+    private double compressorCurrent;
+
+    @Override
+    protected void read() {
+      compressorEnabled = compressor.enabled();
+      storedPressure = compressor.getPressure();
+      compressorCurrent = compressor.getCurrent();
+    }
   }
 }
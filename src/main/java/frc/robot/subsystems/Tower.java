@@ -8,18 +8,31 @@ import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMax.IdleMode;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.SignalLogConstants;
 import frc.robot.Constants.TowerConstants;
+import overclocked.stl.logging.SignalLogger;
+import overclocked.stl.motorcontrol.DeduplicatedMotorController;
+import overclocked.stl.profiling.ProfiledSubsystemBase;
+import overclocked.stl.telemetry.TelemetryRegistry;
+import overclocked.stl.telemetry.TelemetryRegistry.DoubleEntry;
 
 /**
  * A subsystem that controls the Tower on a robot.
  */
-public class Tower extends SubsystemBase {
+public class Tower extends ProfiledSubsystemBase {
   private final CANSparkMax topLeftTowerMotor;
   private final CANSparkMax bottomLeftTowerMotor;
   private final CANSparkMax topRightTowerMotor;
   private final CANSparkMax bottomRightTowerMotor;
 
+  private final DeduplicatedMotorController towerOutput;
+  private double requestedSpeed = 0;
+  private double outputScale = 1.0;
+
+  private final DoubleEntry speedEntry = TelemetryRegistry.getInstance().addDouble("Tower Speed", 5);
+  private final DoubleEntry skippedWritesEntry =
+      TelemetryRegistry.getInstance().addDouble("Tower Skipped CAN Writes", 50);
+
   /**
    * Constructs a Tower with a {@link CANSparkMax} at each of the given CAN IDs. Motors on right
    * side run in opposite direction to motors on left side.
@@ -44,6 +57,9 @@ public class Tower extends SubsystemBase {
    * Constructs a Tower with a {@link CANSparkMax} at each of the given CAN IDs and with the given
    * {@link MotorType}. Motors on right side run in opposite direction to motors on left side.
    *
+   * <p>
+   * The top left motor is the leader; the other three follow it, so only one output is sent per loop.
+   *
    * @param topLeftTowerMotorId The CAN ID of the top left Tower motor
    * @param bottomLeftTowerMotorId The CAN ID of the bottom left Tower motor
    * @param topRightTowerMotorId The CAN ID of the top right Tower motor
@@ -58,15 +74,25 @@ public class Tower extends SubsystemBase {
     bottomLeftTowerMotor = new CANSparkMax(bottomLeftTowerMotorId, motorType);
     bottomLeftTowerMotor.setSmartCurrentLimit(TowerConstants.CURRENT_LIMIT);
     bottomLeftTowerMotor.setIdleMode(IdleMode.kBrake);
+    bottomLeftTowerMotor.follow(topLeftTowerMotor);
     topRightTowerMotor = new CANSparkMax(topRightTowerMotorId, motorType);
     topRightTowerMotor.setSmartCurrentLimit(TowerConstants.CURRENT_LIMIT);
     topRightTowerMotor.setIdleMode(IdleMode.kBrake);
-    topRightTowerMotor.setInverted(true);
+    topRightTowerMotor.follow(topLeftTowerMotor, true);
     bottomRightTowerMotor = new CANSparkMax(bottomRightTowerMotorId, motorType);
     bottomRightTowerMotor.setSmartCurrentLimit(TowerConstants.CURRENT_LIMIT);
     bottomRightTowerMotor.setIdleMode(IdleMode.kBrake);
-    bottomRightTowerMotor.setInverted(true);
+    bottomRightTowerMotor.follow(topLeftTowerMotor, true);
+
+    towerOutput = new DeduplicatedMotorController(topLeftTowerMotor);
 
+    SignalLogger signalLogger = SignalLogger.getInstance();
+    signalLogger.addMotor("Tower/Top Left", topLeftTowerMotor, SignalLogConstants.STATUS_FRAME_PERIOD_MS);
+    signalLogger.addMotor("Tower/Bottom Left", bottomLeftTowerMotor,
+        SignalLogConstants.FOLLOWER_STATUS_FRAME_PERIOD_MS);
+    signalLogger.addMotor("Tower/Top Right", topRightTowerMotor, SignalLogConstants.FOLLOWER_STATUS_FRAME_PERIOD_MS);
+    signalLogger.addMotor("Tower/Bottom Right", bottomRightTowerMotor,
+        SignalLogConstants.FOLLOWER_STATUS_FRAME_PERIOD_MS);
     CommandScheduler.getInstance().registerSubsystem(this);
   }
 
@@ -76,10 +102,31 @@ public class Tower extends SubsystemBase {
    * @param speed The speed to set the motors to
    */
   public void setSpeed(double speed) {
-    topLeftTowerMotor.set(speed);
-    bottomLeftTowerMotor.set(speed);
-    topRightTowerMotor.set(speed);
-    bottomRightTowerMotor.set(speed);
+    requestedSpeed = speed;
+    towerOutput.set(speed * outputScale);
+    speedEntry.set(speed);
+  }
+
+  /**
+   * Returns the current the Tower would draw at the speed last set, at worst, in amps.
+   */
+  public double getPredictedCurrent() {
+    return Math.abs(requestedSpeed) * 4 * TowerConstants.CURRENT_LIMIT;
+  }
+
+  /**
+   * Scales the speed, e.g. to stay within the robot's power budget.
+   *
+   * @param scale The scale, from 0 (stopped) to 1 (unchanged)
+   */
+  public void setOutputScale(double scale) {
+    outputScale = scale;
+    towerOutput.set(requestedSpeed * scale);
+  }
+
+  @Override
+  protected void profiledPeriodic() {
+    skippedWritesEntry.set(towerOutput.getSkippedWrites());
   }
 
 }
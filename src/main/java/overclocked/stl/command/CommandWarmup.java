@@ -0,0 +1,74 @@
+
+package overclocked.stl.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import overclocked.stl.motorcontrol.OutputGate;
+
+/**
+ * Runs commands many times while the robot is disabled, so that their classes are loaded and their code is compiled
+ * by the JIT before the match starts, instead of during the first enabled loops.
+ *
+ * <p>
+ * One warm-up cycle runs initialize(), a few execute()s, isFinished() and end(true) on every command, with the
+ * {@link OutputGate} closed so that no motor output is sent. {@link #run(double)} runs as many cycles as fit in the
+ * given time, so the warm-up can be spread over many disabled loops without overrunning them. The time is measured
+ * with {@link System#nanoTime()} rather than the FPGA clock, which stands still while a simulation has paused it.
+ */
+public class CommandWarmup {
+  private static final int EXECUTES_PER_CYCLE = 10;
+
+  private final List<Command> commands;
+  private final int cycles;
+
+  private int completedCycles = 0;
+  private int nextCommand = 0;
+
+  /**
+   * Creates a warm-up of the given commands.
+   *
+   * @param commands The commands to warm up. They must not be scheduled while the warm-up runs.
+   * @param cycles How many times to run every command
+   */
+  public CommandWarmup(List<Command> commands, int cycles) {
+    this.commands = new ArrayList<>(commands);
+    this.cycles = cycles;
+  }
+
+  /**
+   * Runs the warm-up for at most the given time. Does nothing once the warm-up is done.
+   *
+   * @param budget The time to spend, in seconds
+   */
+  public void run(double budget) {
+    long deadline = System.nanoTime() + (long) (budget * 1e9);
+    OutputGate.inhibit();
+    try {
+      while (!isDone() && System.nanoTime() - deadline < 0) {
+        Command command = commands.get(nextCommand);
+        command.initialize();
+        for (int i = 0; i < EXECUTES_PER_CYCLE; i++) {
+          command.execute();
+        }
+        command.isFinished();
+        command.end(true);
+
+        if (++nextCommand == commands.size()) {
+          nextCommand = 0;
+          completedCycles++;
+        }
+      }
+    } finally {
+      OutputGate.release();
+    }
+  }
+
+  /**
+   * Returns whether every command has been run the requested number of times.
+   */
+  public boolean isDone() {
+    return commands.isEmpty() || completedCycles >= cycles;
+  }
+}
@@ -0,0 +1,87 @@
+
+package overclocked.stl.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Builds a 32-bit hash of a device's desired configuration, so that it can be compared with the hash of the
+ * configuration that was last applied to the device.
+ *
+ * <p>
+ * Every value is added under a name, so that reordering or renaming settings also changes the hash. The hash is
+ * never 0, which is what an unwritten marker reads as.
+ */
+public final class ConfigHash {
+  private final StringBuilder description = new StringBuilder();
+
+  /**
+   * Starts a hash for the given kind of device, e.g. "TalonFX". Different kinds of devices never share a hash.
+   *
+   * @param deviceType The kind of device being configured
+   */
+  public ConfigHash(String deviceType) {
+    description.append(deviceType);
+  }
+
+  /**
+   * Adds a setting to the hash.
+   *
+   * @param name The name of the setting
+   * @param value The value of the setting
+   * @return this, for chaining
+   */
+  public ConfigHash add(String name, double value) {
+    return append(name, Double.toString(value));
+  }
+
+  /**
+   * Adds a setting to the hash.
+   *
+   * @param name The name of the setting
+   * @param value The value of the setting
+   * @return this, for chaining
+   */
+  public ConfigHash add(String name, long value) {
+    return append(name, Long.toString(value));
+  }
+
+  /**
+   * Adds a setting to the hash.
+   *
+   * @param name The name of the setting
+   * @param value The value of the setting
+   * @return this, for chaining
+   */
+  public ConfigHash add(String name, boolean value) {
+    return append(name, Boolean.toString(value));
+  }
+
+  /**
+   * Adds a setting to the hash.
+   *
+   * @param name The name of the setting
+   * @param value The value of the setting
+   * @return this, for chaining
+   */
+  public ConfigHash add(String name, Enum<?> value) {
+    return append(name, value.name());
+  }
+
+  private ConfigHash append(String name, String value) {
+    description.append('\n').append(name).append('=').append(value);
+    return this;
+  }
+
+  /**
+   * Returns the hash of every setting added so far.
+   *
+   * @return the hash, never 0
+   */
+  public int get() {
+    CRC32 crc = new CRC32();
+    crc.update(description.toString().getBytes(StandardCharsets.UTF_8));
+    int hash = (int) crc.getValue();
+    return hash == 0 ? 1 : hash;
+  }
+}
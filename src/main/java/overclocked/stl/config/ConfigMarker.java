@@ -0,0 +1,22 @@
+
+package overclocked.stl.config;
+
+/**
+ * Remembers the {@link ConfigHash} of the configuration that was last applied to a device.
+ */
+public interface ConfigMarker {
+  /**
+   * Returns whether the last applied configuration has the given hash. Returns false if the marker can not be read.
+   *
+   * @param hash The hash of the desired configuration
+   * @return whether the device already has that configuration
+   */
+  boolean matches(int hash);
+
+  /**
+   * Remembers that the configuration with the given hash has been applied.
+   *
+   * @param hash The hash of the applied configuration
+   */
+  void store(int hash);
+}
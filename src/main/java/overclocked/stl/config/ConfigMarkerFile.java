@@ -0,0 +1,105 @@
+
+package overclocked.stl.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+
+/**
+ * {@link ConfigMarker}s kept in a file on the roboRIO, for devices that have nowhere to keep one themselves (such as
+ * the CANSparkMax).
+ *
+ * <p>
+ * Unlike a marker on the device, this one survives replacing the device, so a replacement on the same CAN ID would
+ * look configured. Each marker therefore also takes a check that reads a few of the settings back from the device,
+ * and only matches if they are as configured. Deleting the file forces every device that uses it to be configured
+ * again on the next boot.
+ */
+public final class ConfigMarkerFile {
+  private static final String FILE_NAME = "device-config-hashes.properties";
+  // Where the file goes in simulation, relative to the operating directory (the project directory).
+  private static final String SIMULATION_DIRECTORY = "build";
+
+  private static ConfigMarkerFile instance;
+
+  private final File file;
+  private final Properties hashes = new Properties();
+
+  /**
+   * Returns the ConfigMarkerFile instance, loading the file from the operating directory (/home/lvuser on the robot)
+   * if necessary. In simulation the file is kept under build/ instead, so that it is not left in the project.
+   *
+   * @return the instance
+   */
+  public static synchronized ConfigMarkerFile getInstance() {
+    if (instance == null) {
+      File directory = Filesystem.getOperatingDirectory();
+      if (!RobotBase.isReal()) {
+        directory = new File(directory, SIMULATION_DIRECTORY);
+      }
+      instance = new ConfigMarkerFile(new File(directory, FILE_NAME));
+    }
+    return instance;
+  }
+
+  private ConfigMarkerFile(File file) {
+    this.file = file;
+    if (file.exists()) {
+      try (InputStream in = Files.newInputStream(file.toPath())) {
+        hashes.load(in);
+      } catch (IOException | IllegalArgumentException e) {
+        DriverStation.reportWarning("Could not read " + file + ", reconfiguring every device: " + e, false);
+        hashes.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns the marker of the given device.
+   *
+   * @param deviceKey A name that is unique to the device, e.g. "SparkMax 61"
+   * @param deviceCheck Returns whether the device itself still has some of the configured settings (e.g. its idle
+   *        mode and whether it follows), so that a replaced device is configured even though the file has its hash
+   * @return the marker
+   */
+  public ConfigMarker marker(String deviceKey, BooleanSupplier deviceCheck) {
+    return new ConfigMarker() {
+      @Override
+      public boolean matches(int hash) {
+        synchronized (ConfigMarkerFile.this) {
+          if (!Integer.toString(hash).equals(hashes.getProperty(deviceKey))) {
+            return false;
+          }
+        }
+        return deviceCheck.getAsBoolean();
+      }
+
+      @Override
+      public void store(int hash) {
+        synchronized (ConfigMarkerFile.this) {
+          hashes.setProperty(deviceKey, Integer.toString(hash));
+          save();
+        }
+      }
+    };
+  }
+
+  private void save() {
+    try {
+      Files.createDirectories(file.getParentFile().toPath());
+      try (OutputStream out = Files.newOutputStream(file.toPath())) {
+        hashes.store(out, "Hashes of the configuration last applied to each device");
+      }
+    } catch (IOException e) {
+      DriverStation.reportWarning("Could not write " + file + ": " + e, false);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+
+package overclocked.stl.config;
+
+import java.util.function.IntFunction;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.ParamEnum;
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+import com.ctre.phoenix.motorcontrol.can.BaseTalon;
+
+/**
+ * One setting of a {@link DeviceConfig}: how to send it to the device, and how to read it back to check that the
+ * device has it.
+ */
+public final class ConfigStep {
+  // Gains are stored as fixed point numbers on CTRE controllers, so they do not read back exactly.
+  private static final double PARAM_TOLERANCE = 1e-4;
+
+  /**
+   * Sends or checks a setting.
+   */
+  @FunctionalInterface
+  public interface Action {
+    /**
+     * Sends or checks a setting, waiting at most the given time for the device to answer.
+     *
+     * @param timeoutMs How long to wait for the device, in milliseconds
+     * @return whether the setting was sent, or whether the device has it
+     */
+    boolean run(int timeoutMs);
+  }
+
+  private final String name;
+  private final Action apply;
+  private final Action verify;
+
+  /**
+   * Creates a configuration step.
+   *
+   * @param name The name of the setting, used when reporting failures
+   * @param apply Sends the setting
+   * @param verify Reads the setting back, and returns whether it is correct
+   */
+  public ConfigStep(String name, Action apply, Action verify) {
+    this.name = name;
+    this.apply = apply;
+    this.verify = verify;
+  }
+
+  /**
+   * Creates a step for a numeric CTRE parameter, which is verified with configGetParameter().
+   *
+   * @param controller The controller to configure
+   * @param name The name of the setting
+   * @param param The parameter that apply sets
+   * @param ordinal The ordinal of the parameter, e.g. the PID slot
+   * @param value The value that apply sets
+   * @param apply Sends the setting, e.g. {@code timeoutMs -> motor.config_kP(0, 0.1, timeoutMs)}
+   * @return the step
+   */
+  public static ConfigStep ctreParam(BaseMotorController controller, String name, ParamEnum param, int ordinal,
+      double value, IntFunction<ErrorCode> apply) {
+    return new ConfigStep(name,
+        timeoutMs -> apply.apply(timeoutMs) == ErrorCode.OK,
+        timeoutMs -> {
+          double actual = controller.configGetParameter(param, ordinal, timeoutMs);
+          return controller.getLastError() == ErrorCode.OK
+              && Math.abs(actual - value) <= PARAM_TOLERANCE * Math.max(1, Math.abs(value));
+        });
+  }
+
+  /**
+   * Creates a step for the supply current limit of a Talon.
+   *
+   * @param talon The Talon to configure
+   * @param limit The supply current limit
+   * @return the step
+   */
+  public static ConfigStep supplyCurrentLimit(BaseTalon talon, SupplyCurrentLimitConfiguration limit) {
+    return new ConfigStep("supplyCurrentLimit",
+        timeoutMs -> talon.configSupplyCurrentLimit(limit, timeoutMs) == ErrorCode.OK,
+        timeoutMs -> {
+          SupplyCurrentLimitConfiguration actual = new SupplyCurrentLimitConfiguration();
+          return talon.configGetSupplyCurrentLimit(actual, timeoutMs) == ErrorCode.OK
+              && actual.enable == limit.enable
+              && Math.abs(actual.currentLimit - limit.currentLimit) <= PARAM_TOLERANCE * limit.currentLimit
+              && Math.abs(actual.triggerThresholdCurrent - limit.triggerThresholdCurrent)
+                  <= PARAM_TOLERANCE * limit.triggerThresholdCurrent
+              && Math.abs(actual.triggerThresholdTime - limit.triggerThresholdTime)
+                  <= PARAM_TOLERANCE * Math.max(1, limit.triggerThresholdTime);
+        });
+  }
+
+  /**
+   * Returns the name of the setting.
+   */
+  public String getName() {
+    return name;
+  }
+
+  boolean apply(int timeoutMs) {
+    return apply.run(timeoutMs);
+  }
+
+  boolean verify(int timeoutMs) {
+    return verify.run(timeoutMs);
+  }
+}
@@ -0,0 +1,53 @@
+
+package overclocked.stl.config;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+
+/**
+ * A {@link ConfigMarker} kept in one of the custom parameters of a CTRE motor controller. The custom parameters live
+ * in the controller's flash next to its configuration, so the marker is reset whenever the configuration is (e.g.
+ * when the controller is replaced or factory reset).
+ */
+public class CustomParamConfigMarker implements ConfigMarker {
+  private static final int DEFAULT_PARAM_INDEX = 0;
+
+  private final BaseMotorController controller;
+  private final int paramIndex;
+  private final int timeoutMs;
+
+  /**
+   * Creates a marker in the given custom parameter of a controller.
+   *
+   * @param controller The controller to keep the marker on
+   * @param paramIndex The index of the custom parameter, 0 or 1
+   * @param timeoutMs How long to wait for the controller to answer, in milliseconds. Must not be 0, or the marker
+   *        can never be read back.
+   */
+  public CustomParamConfigMarker(BaseMotorController controller, int paramIndex, int timeoutMs) {
+    this.controller = controller;
+    this.paramIndex = paramIndex;
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Creates a marker in the first custom parameter of a controller.
+   *
+   * @param controller The controller to keep the marker on
+   * @param timeoutMs How long to wait for the controller to answer, in milliseconds
+   */
+  public CustomParamConfigMarker(BaseMotorController controller, int timeoutMs) {
+    this(controller, DEFAULT_PARAM_INDEX, timeoutMs);
+  }
+
+  @Override
+  public boolean matches(int hash) {
+    int storedHash = controller.configGetCustomParam(paramIndex, timeoutMs);
+    return controller.getLastError() == ErrorCode.OK && storedHash == hash;
+  }
+
+  @Override
+  public void store(int hash) {
+    controller.configSetCustomParam(hash, paramIndex, timeoutMs);
+  }
+}
@@ -0,0 +1,60 @@
+
+package overclocked.stl.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The desired configuration of one device, as a list of {@link ConfigStep}s to run on the
+ * {@link DeviceConfigurator}.
+ */
+public final class DeviceConfig {
+  private final String deviceName;
+  private final ConfigMarker marker;
+  private final ConfigHash hash;
+  private final List<ConfigStep> steps = new ArrayList<>();
+
+  /**
+   * Creates an empty configuration.
+   *
+   * @param deviceName The name of the device, used when reporting failures
+   * @param marker The marker of the device
+   * @param hash The hash of every setting in the configuration
+   */
+  public DeviceConfig(String deviceName, ConfigMarker marker, ConfigHash hash) {
+    this.deviceName = deviceName;
+    this.marker = marker;
+    this.hash = hash;
+  }
+
+  /**
+   * Adds a step to the configuration.
+   *
+   * @param step The step to add
+   * @return this, for chaining
+   */
+  public DeviceConfig add(ConfigStep step) {
+    steps.add(step);
+    return this;
+  }
+
+  /**
+   * Returns the name of the device.
+   */
+  public String getDeviceName() {
+    return deviceName;
+  }
+
+  ConfigMarker getMarker() {
+    return marker;
+  }
+
+  ConfigHash getHash() {
+    return hash;
+  }
+
+  List<ConfigStep> getSteps() {
+    return Collections.unmodifiableList(steps);
+  }
+}
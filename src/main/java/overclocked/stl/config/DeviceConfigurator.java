@@ -0,0 +1,220 @@
+
+package overclocked.stl.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Applies device configurations only when they differ from the ones that were last applied, and applies them to
+ * every device at once.
+ *
+ * <p>
+ * Configuring a device (and especially burning its flash) is slow, wears the flash, and leaves the device briefly
+ * unconfigured. Most boots, including a reboot in the middle of a match, find every device already configured, so
+ * the configuration is hashed with a {@link ConfigHash} and compared with the device's {@link ConfigMarker} first.
+ *
+ * <p>
+ * {@link DeviceConfig}s given to {@link #submit(DeviceConfig)} are applied by {@link #awaitAll()}, on a bounded pool
+ * of worker threads, one device per thread, so that waiting for one device does not hold up the others. Every step
+ * is sent with a timeout, read back, and retried if either fails; the marker is only updated once every step of the
+ * device is verified. {@link #awaitAll()} returns a {@link Report} once every device is done.
+ *
+ * <p>
+ * The workers only start in {@link #awaitAll()}, once the subsystems have been created. A CTRE device reports the
+ * error of its last call to whichever thread asks, so a step verified while a constructor is still sending other
+ * settings to the same device (its neutral mode, sensor position or status frame periods) could read that call's
+ * error instead of its own.
+ *
+ * <p>
+ * Only settings that the device keeps across power cycles belong in the configuration. Settings that it forgets
+ * (such as the neutral mode of a CTRE controller) must still be applied on every boot.
+ */
+public final class DeviceConfigurator {
+  private static final int DEFAULT_THREAD_COUNT = 4;
+  private static final int DEFAULT_TIMEOUT_MS = 50;
+  private static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+  private static DeviceConfigurator instance;
+
+  private int threadCount = DEFAULT_THREAD_COUNT;
+  private int timeoutMs = DEFAULT_TIMEOUT_MS;
+  private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+  private final List<DeviceConfig> submitted = new ArrayList<>();
+  private final AtomicInteger skippedDevices = new AtomicInteger();
+
+  /**
+   * Returns the DeviceConfigurator instance, creating it if necessary.
+   *
+   * @return the instance
+   */
+  public static synchronized DeviceConfigurator getInstance() {
+    if (instance == null) {
+      instance = new DeviceConfigurator();
+    }
+    return instance;
+  }
+
+  private DeviceConfigurator() {}
+
+  /**
+   * Sets how devices are configured. Must be called before the first device is submitted.
+   *
+   * @param threadCount The number of devices to configure at once
+   * @param timeoutMs How long to wait for a device to answer each request, in milliseconds. Must not be 0.
+   * @param maxAttempts How many times to try each step before reporting it as failed
+   */
+  public synchronized void setPolicy(int threadCount, int timeoutMs, int maxAttempts) {
+    if (!submitted.isEmpty()) {
+      throw new IllegalStateException("setPolicy() must be called before any device is submitted");
+    }
+    this.threadCount = threadCount;
+    this.timeoutMs = timeoutMs;
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Adds a device to be configured by the next {@link #awaitAll()}. Nothing is done on the device if its marker shows
+   * that it already has the configuration.
+   *
+   * @param config The configuration of the device
+   */
+  public synchronized void submit(DeviceConfig config) {
+    submitted.add(config);
+  }
+
+  /**
+   * Configures every submitted device, all at once, and waits until they are done. Must not be called while another
+   * thread is still using the devices.
+   *
+   * @return a report of the time taken and of every setting that could not be verified
+   */
+  public synchronized Report awaitAll() throws InterruptedException {
+    long startTime = RobotController.getFPGATime();
+    List<String> failures = new ArrayList<>();
+    if (!submitted.isEmpty()) {
+      AtomicInteger threadNumber = new AtomicInteger();
+      ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+        Thread thread = new Thread(runnable, "DeviceConfigurator-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      try {
+        List<Future<List<String>>> pending = new ArrayList<>();
+        for (DeviceConfig config : submitted) {
+          pending.add(executor.submit(() -> configure(config)));
+        }
+        for (Future<List<String>> future : pending) {
+          try {
+            failures.addAll(future.get());
+          } catch (ExecutionException e) {
+            failures.add("configuration threw " + e.getCause());
+          }
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+    int configuredDevices = submitted.size() - skippedDevices.get();
+    Report report = new Report((RobotController.getFPGATime() - startTime) / 1000,
+        configuredDevices, skippedDevices.get(), failures);
+
+    submitted.clear();
+    skippedDevices.set(0);
+    return report;
+  }
+
+  private List<String> configure(DeviceConfig config) {
+    int hash = config.getHash().get();
+    if (config.getMarker().matches(hash)) {
+      skippedDevices.incrementAndGet();
+      return Collections.emptyList();
+    }
+
+    List<String> failures = new ArrayList<>();
+    for (ConfigStep step : config.getSteps()) {
+      if (!runWithRetries(step)) {
+        failures.add(config.getDeviceName() + ": " + step.getName());
+      }
+    }
+    if (failures.isEmpty()) {
+      config.getMarker().store(hash);
+    }
+    return failures;
+  }
+
+  private boolean runWithRetries(ConfigStep step) {
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      if (step.apply(timeoutMs) && step.verify(timeoutMs)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Runs the given configuration on the calling thread unless the marker shows that it was already applied, and
+   * updates the marker after it has run. For devices whose configuration can not be verified step by step, such as
+   * a CANSparkMax that has to be reset and have its flash burned.
+   *
+   * @param marker The marker of the device
+   * @param hash The hash of the configuration
+   * @param configure Applies the configuration, and makes it persistent if the device needs that (e.g. burnFlash())
+   * @return whether the configuration was applied
+   */
+  public static boolean applyIfChanged(ConfigMarker marker, ConfigHash hash, Runnable configure) {
+    int hashValue = hash.get();
+    if (marker.matches(hashValue)) {
+      return false;
+    }
+    configure.run();
+    marker.store(hashValue);
+    return true;
+  }
+
+  /**
+   * The outcome of configuring every submitted device.
+   */
+  public static final class Report {
+    private final long elapsedMs;
+    private final int configuredDevices;
+    private final int skippedDevices;
+    private final List<String> failures;
+
+    private Report(long elapsedMs, int configuredDevices, int skippedDevices, List<String> failures) {
+      this.elapsedMs = elapsedMs;
+      this.configuredDevices = configuredDevices;
+      this.skippedDevices = skippedDevices;
+      this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Returns whether every setting of every device was verified.
+     */
+    public boolean succeeded() {
+      return failures.isEmpty();
+    }
+
+    /**
+     * Returns the settings that could not be verified, as "device: setting".
+     */
+    public List<String> getFailures() {
+      return failures;
+    }
+
+    @Override
+    public String toString() {
+      String summary = String.format("Configured %d devices (%d already up to date) in %d ms",
+          configuredDevices, skippedDevices, elapsedMs);
+      return failures.isEmpty() ? summary : summary + ", failed to verify " + String.join(", ", failures);
+    }
+  }
+}
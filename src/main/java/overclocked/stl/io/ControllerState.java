@@ -0,0 +1,111 @@
+
+package overclocked.stl.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * The axes, buttons and POVs of one controller at one point in time, as recorded by {@link InputRecorder}.
+ *
+ * <p>
+ * Axes are stored as 16-bit fixed point numbers. The driver station only sends 8 bits per axis, so this loses
+ * nothing.
+ */
+final class ControllerState {
+  private static final int MAX_AXES = 12;
+  private static final int MAX_POVS = 12;
+  // The most bytes that write() produces.
+  static final int MAX_SIZE = Byte.BYTES + MAX_AXES * Short.BYTES + Byte.BYTES + Integer.BYTES + Byte.BYTES
+      + MAX_POVS * Short.BYTES;
+
+  private int axisCount = 0;
+  private final short[] axes = new short[MAX_AXES];
+  private int buttonCount = 0;
+  private int buttons = 0;
+  private int povCount = 0;
+  private final short[] povs = new short[MAX_POVS];
+
+  /**
+   * Reads the current state of the controller at the given port from the {@link DriverStation}.
+   */
+  void capture(int port) {
+    axisCount = Math.min(DriverStation.getStickAxisCount(port), MAX_AXES);
+    for (int i = 0; i < axisCount; i++) {
+      axes[i] = (short) Math.round(DriverStation.getStickAxis(port, i) * Short.MAX_VALUE);
+    }
+    buttonCount = DriverStation.getStickButtonCount(port);
+    buttons = DriverStation.getStickButtons(port);
+    povCount = Math.min(DriverStation.getStickPOVCount(port), MAX_POVS);
+    for (int i = 0; i < povCount; i++) {
+      povs[i] = (short) DriverStation.getStickPOV(port, i);
+    }
+  }
+
+  void copyFrom(ControllerState other) {
+    axisCount = other.axisCount;
+    System.arraycopy(other.axes, 0, axes, 0, axisCount);
+    buttonCount = other.buttonCount;
+    buttons = other.buttons;
+    povCount = other.povCount;
+    System.arraycopy(other.povs, 0, povs, 0, povCount);
+  }
+
+  boolean sameAs(ControllerState other) {
+    if (axisCount != other.axisCount || buttonCount != other.buttonCount || buttons != other.buttons
+        || povCount != other.povCount) {
+      return false;
+    }
+    for (int i = 0; i < axisCount; i++) {
+      if (axes[i] != other.axes[i]) {
+        return false;
+      }
+    }
+    for (int i = 0; i < povCount; i++) {
+      if (povs[i] != other.povs[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    out.writeByte(axisCount);
+    for (int i = 0; i < axisCount; i++) {
+      out.writeShort(axes[i]);
+    }
+    out.writeByte(buttonCount);
+    out.writeInt(buttons);
+    out.writeByte(povCount);
+    for (int i = 0; i < povCount; i++) {
+      out.writeShort(povs[i]);
+    }
+  }
+
+  void read(DataInputStream in) throws IOException {
+    axisCount = in.readUnsignedByte();
+    for (int i = 0; i < axisCount; i++) {
+      axes[i] = in.readShort();
+    }
+    buttonCount = in.readUnsignedByte();
+    buttons = in.readInt();
+    povCount = in.readUnsignedByte();
+    for (int i = 0; i < povCount; i++) {
+      povs[i] = in.readShort();
+    }
+  }
+
+  double getAxis(int axis) {
+    return axis >= 0 && axis < axisCount ? axes[axis] / (double) Short.MAX_VALUE : 0;
+  }
+
+  boolean getButton(int button) {
+    return button >= 1 && button <= buttonCount && (buttons & (1 << (button - 1))) != 0;
+  }
+
+  int getPOV(int pov) {
+    return pov >= 0 && pov < povCount ? povs[pov] : -1;
+  }
+}
@@ -0,0 +1,112 @@
+
+package overclocked.stl.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a recording made by {@link InputRecorder} through the {@link OverclockedController}s, so that the robot's
+ * button bindings and commands see exactly the recorded inputs.
+ *
+ * <p>
+ * Controllers are matched by port. While a playback is applied, the controllers ignore the driver station.
+ */
+public final class InputPlayback {
+  private final List<Integer> loops = new ArrayList<>();
+  private final List<Integer> modes = new ArrayList<>();
+  private final List<ControllerState[]> frames = new ArrayList<>();
+  private final OverclockedController[] controllers;
+
+  private int nextFrame = 0;
+  private int mode = 0;
+
+  /**
+   * Loads a recording, and matches its controllers with the {@link OverclockedController}s created so far.
+   *
+   * @param file The recording
+   * @throws IOException if the file can not be read, or is not a recording
+   */
+  public InputPlayback(File file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+      if (in.readInt() != InputRecorder.MAGIC) {
+        throw new IOException(file + " is not an input recording");
+      }
+      int version = in.readShort();
+      if (version != InputRecorder.VERSION) {
+        throw new IOException(file + " has version " + version + ", expected " + InputRecorder.VERSION);
+      }
+
+      controllers = new OverclockedController[in.readUnsignedByte()];
+      for (int i = 0; i < controllers.length; i++) {
+        int port = in.readUnsignedByte();
+        for (OverclockedController controller : OverclockedController.getAll()) {
+          if (controller.getPort() == port) {
+            controllers[i] = controller;
+          }
+        }
+      }
+
+      while (true) {
+        int loop;
+        try {
+          loop = in.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        in.readLong();
+        modes.add(in.readUnsignedByte());
+        ControllerState[] states = new ControllerState[controllers.length];
+        for (int i = 0; i < states.length; i++) {
+          states[i] = new ControllerState();
+          states[i].read(in);
+        }
+        loops.add(loop);
+        frames.add(states);
+      }
+    }
+  }
+
+  /**
+   * Returns the loop number of the last recorded frame.
+   */
+  public int getLastLoop() {
+    return loops.isEmpty() ? 0 : loops.get(loops.size() - 1);
+  }
+
+  /**
+   * Applies the inputs recorded for the given loop to the controllers. Loops must be applied in increasing order.
+   *
+   * @param loop The loop number, counted from the start of the recording
+   * @return the recorded robot mode, as {@link InputRecorder#MODE_ENABLED} and friends
+   */
+  public int apply(int loop) {
+    while (nextFrame < loops.size() && loops.get(nextFrame) <= loop) {
+      ControllerState[] states = frames.get(nextFrame);
+      for (int i = 0; i < controllers.length; i++) {
+        if (controllers[i] != null) {
+          controllers[i].setReplayState(states[i]);
+        }
+      }
+      mode = modes.get(nextFrame);
+      nextFrame++;
+    }
+    return mode;
+  }
+
+  /**
+   * Hands the controllers back to the driver station.
+   */
+  public void stop() {
+    for (OverclockedController controller : controllers) {
+      if (controller != null) {
+        controller.setReplayState(null);
+      }
+    }
+  }
+}
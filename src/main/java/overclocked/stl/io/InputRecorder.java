@@ -0,0 +1,247 @@
+
+package overclocked.stl.io;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Records the state of every {@link OverclockedController}, and the robot mode, once per loop into a compact binary
+ * file that {@link InputPlayback} can replay.
+ *
+ * <p>
+ * A frame is only written when something changed since the last one, and every frame carries the number of the
+ * loop it was recorded in, so a replay applies it in exactly the same loop.
+ *
+ * <p>
+ * The control thread never touches the file. A frame is encoded into a preallocated ring of bytes, and a
+ * {@link Notifier} writes whatever has been added to the ring to the file in the background, as the SignalLogger
+ * does. Should the writer fall so far behind that the ring fills up, the recording stops rather than block the loop
+ * or leave a gap in the replay.
+ *
+ * <p>
+ * The file starts with {@link #MAGIC}, {@link #VERSION}, the number of controllers and their ports. Every frame is
+ * then the loop number (int), the FPGA time in microseconds (long), the mode bits (byte, see {@link #MODE_ENABLED})
+ * and the state of every controller. Everything is big-endian.
+ */
+public final class InputRecorder {
+  static final int MAGIC = 0x4F434952; // "OCIR"
+  static final int VERSION = 1;
+
+  public static final int MODE_ENABLED = 1;
+  public static final int MODE_AUTONOMOUS = 2;
+  public static final int MODE_TEST = 4;
+
+  // A power of two. Holds over 40 seconds of frames from two controllers, even if every loop writes one.
+  private static final int RING_SIZE = 256 * 1024;
+  private static final double WRITE_PERIOD = 0.1;
+  private static final int FRAME_HEADER_SIZE = Integer.BYTES + Long.BYTES + Byte.BYTES;
+
+  private static InputRecorder instance;
+
+  private byte[] ring;
+  private final RingOutputStream ringStream = new RingOutputStream();
+  private final DataOutputStream out = new DataOutputStream(ringStream);
+  // The number of bytes ever added to the ring by the control thread, and written from it to the file by the writer.
+  private volatile long published = 0;
+  private volatile long drained = 0;
+  private volatile boolean recording = false;
+  private OutputStream file;
+  private Notifier writer;
+  private int maxFrameSize;
+  private List<OverclockedController> controllers;
+  private ControllerState[] current;
+  private ControllerState[] lastWritten;
+  private int lastMode = -1;
+  private int loop = 0;
+
+  /**
+   * Returns the InputRecorder instance, creating it if necessary.
+   *
+   * @return the instance
+   */
+  public static synchronized InputRecorder getInstance() {
+    if (instance == null) {
+      instance = new InputRecorder();
+    }
+    return instance;
+  }
+
+  private InputRecorder() {}
+
+  /**
+   * Starts recording every {@link OverclockedController} created so far into the given file. Does nothing if a
+   * recording is already running.
+   *
+   * @param file The file to record to
+   */
+  public synchronized void start(File file) {
+    if (recording) {
+      return;
+    }
+    if (writer != null) {
+      // A previous recording failed. Drop whatever it left in the ring.
+      writer.close();
+      writer = null;
+      drained = published;
+      lastMode = -1;
+    }
+    if (ring == null) {
+      ring = new byte[RING_SIZE];
+    }
+    controllers = OverclockedController.getAll();
+    maxFrameSize = FRAME_HEADER_SIZE + controllers.size() * ControllerState.MAX_SIZE;
+    current = new ControllerState[controllers.size()];
+    lastWritten = new ControllerState[controllers.size()];
+    for (int i = 0; i < current.length; i++) {
+      current[i] = new ControllerState();
+      lastWritten[i] = new ControllerState();
+    }
+
+    try {
+      this.file = Files.newOutputStream(file.toPath());
+      DataOutputStream header = new DataOutputStream(this.file);
+      header.writeInt(MAGIC);
+      header.writeShort(VERSION);
+      header.writeByte(controllers.size());
+      for (OverclockedController controller : controllers) {
+        header.writeByte(controller.getPort());
+      }
+    } catch (IOException e) {
+      DriverStation.reportError("Could not start recording inputs to " + file + ": " + e, false);
+      if (this.file != null) {
+        close();
+      }
+      return;
+    }
+    recording = true;
+    writer = new Notifier(this::drain);
+    writer.setName("InputRecorder");
+    writer.startPeriodic(WRITE_PERIOD);
+  }
+
+  /**
+   * Records the current inputs, if they changed. Must be called once per loop, before the command scheduler runs.
+   */
+  public void recordFrame() {
+    if (!recording) {
+      return;
+    }
+    int mode = currentMode();
+    boolean changed = mode != lastMode;
+    for (int i = 0; i < current.length; i++) {
+      current[i].capture(controllers.get(i).getPort());
+      changed |= !current[i].sameAs(lastWritten[i]);
+    }
+
+    if (changed) {
+      if (RING_SIZE - (ringStream.position - drained) < maxFrameSize) {
+        // The writer closes the file once it sees this.
+        recording = false;
+        DriverStation.reportError("Stopped recording inputs: the file writer fell behind", false);
+        return;
+      }
+      try {
+        out.writeInt(loop);
+        out.writeLong(RobotController.getFPGATime());
+        out.writeByte(mode);
+        for (int i = 0; i < current.length; i++) {
+          current[i].write(out);
+          lastWritten[i].copyFrom(current[i]);
+        }
+        lastMode = mode;
+      } catch (IOException e) {
+        // The ring never throws.
+        throw new IllegalStateException(e);
+      }
+      published = ringStream.position;
+    }
+    loop++;
+  }
+
+  /**
+   * Writes every recorded frame to the file now, instead of waiting for the writer. Should be called while disabled,
+   * since it may block.
+   */
+  public void flush() {
+    drain();
+  }
+
+  /**
+   * Returns whether a recording is running.
+   */
+  public boolean isRecording() {
+    return recording;
+  }
+
+  /**
+   * Writes the frames added to the ring since the last call to the file. Runs on the writer's thread, or on the
+   * calling thread from {@link #flush()}.
+   */
+  private synchronized void drain() {
+    if (file == null) {
+      return;
+    }
+    // Read first: the control thread publishes nothing more once it has stopped the recording.
+    boolean stopped = !recording;
+    long end = published;
+    try {
+      while (drained < end) {
+        int start = (int) (drained & (RING_SIZE - 1));
+        int length = (int) Math.min(end - drained, RING_SIZE - start);
+        file.write(ring, start, length);
+        drained += length;
+      }
+      if (stopped) {
+        close();
+      }
+    } catch (IOException e) {
+      recording = false;
+      DriverStation.reportError("Stopped recording inputs: " + e, false);
+      close();
+    }
+  }
+
+  private void close() {
+    try {
+      file.close();
+    } catch (IOException e) {
+      // Every frame that could be written already has been.
+    }
+    file = null;
+  }
+
+  private static int currentMode() {
+    int mode = 0;
+    if (DriverStation.isEnabled()) {
+      mode |= MODE_ENABLED;
+    }
+    if (DriverStation.isAutonomous()) {
+      mode |= MODE_AUTONOMOUS;
+    }
+    if (DriverStation.isTest()) {
+      mode |= MODE_TEST;
+    }
+    return mode;
+  }
+
+  /**
+   * Encodes frames into the ring. Only used by the control thread, which checks that a whole frame fits first.
+   */
+  private final class RingOutputStream extends OutputStream {
+    private long position = 0;
+
+    @Override
+    public void write(int b) {
+      ring[(int) (position & (RING_SIZE - 1))] = (byte) b;
+      position++;
+    }
+  }
+}
@@ -1,13 +1,27 @@
 
 package overclocked.stl.io;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+
 import edu.wpi.first.wpilibj.GenericHID;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
 
 /** 
  * An extension of the {@link GenericHID} class that adds some useful utilities.
+ *
+ * <p>
+ * Every OverclockedController can be recorded by the {@link InputRecorder} and replayed by an
+ * {@link InputPlayback}. During a replay getRawAxis(), getRawButton() and getPOV() return the recorded values;
+ * the edge-detecting methods such as getRawButtonPressed() still read the driver station.
  * */
 public class OverclockedController extends GenericHID {
+  private static final List<OverclockedController> controllers = new ArrayList<>();
+
+  private volatile ControllerState replayState;
 
   /**
    * Creates a new OverclockedController.
@@ -16,6 +30,44 @@ public class OverclockedController extends GenericHID {
    */
   public OverclockedController(int port) {
     super(port);
+    synchronized (controllers) {
+      controllers.add(this);
+    }
+  }
+
+  /**
+   * Returns every OverclockedController created so far.
+   */
+  static List<OverclockedController> getAll() {
+    synchronized (controllers) {
+      return Collections.unmodifiableList(new ArrayList<>(controllers));
+    }
+  }
+
+  /**
+   * Makes this controller return the given state instead of reading the driver station, or go back to reading it if
+   * state is null.
+   */
+  void setReplayState(ControllerState state) {
+    replayState = state;
+  }
+
+  @Override
+  public double getRawAxis(int axis) {
+    ControllerState state = replayState;
+    return state == null ? super.getRawAxis(axis) : state.getAxis(axis);
+  }
+
+  @Override
+  public boolean getRawButton(int button) {
+    ControllerState state = replayState;
+    return state == null ? super.getRawButton(button) : state.getButton(button);
+  }
+
+  @Override
+  public int getPOV(int pov) {
+    ControllerState state = replayState;
+    return state == null ? super.getPOV(pov) : state.getPOV(pov);
   }
 
   /**
@@ -27,4 +79,26 @@ public class OverclockedController extends GenericHID {
   public JoystickButton button(int buttonNumber) {
     return new JoystickButton(this, buttonNumber);
   }
+
+  /**
+   * Creates a {@link DoubleSupplier} that reads an axis of this controller without boxing.
+   *
+   * @param axis The axis number (see {@link GenericHID#getRawAxis(int)})
+   * @return The new {@link DoubleSupplier}
+   */
+  public DoubleSupplier axis(int axis) {
+    return () -> getRawAxis(axis);
+  }
+
+  /**
+   * Creates a {@link DoubleSupplier} that reads an axis of this controller and applies the given transform, e.g. a
+   * scale factor, without boxing.
+   *
+   * @param axis The axis number (see {@link GenericHID#getRawAxis(int)})
+   * @param transform The transform to apply to the axis value
+   * @return The new {@link DoubleSupplier}
+   */
+  public DoubleSupplier axis(int axis, DoubleUnaryOperator transform) {
+    return () -> transform.applyAsDouble(getRawAxis(axis));
+  }
 }
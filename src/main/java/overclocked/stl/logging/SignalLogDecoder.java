@@ -0,0 +1,166 @@
+
+package overclocked.stl.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a log written by {@link SignalLogger} into files that analysis tools can read. Runs on a desktop, e.g.
+ * through {@code ./gradlew decodeSignalLog -Plog=signals.bin}.
+ *
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ * <li>csv: one signals.csv with a "Time (s)" column and one column per channel, one row per record.</li>
+ * <li>columnar: one file per column, each a plain little-endian array (time.f64 holds doubles, every channel file
+ * a .f32 of floats), plus a schema.txt listing the column files in order. numpy.fromfile() and most columnar tools
+ * read these directly.</li>
+ * </ul>
+ * Records are written oldest first, and time is in seconds since the first record that is still in the log.
+ */
+public final class SignalLogDecoder {
+  private SignalLogDecoder() {}
+
+  /**
+   * Decodes a log.
+   *
+   * @param args The log file, the output directory, and optionally the format ("csv", the default, or "columnar")
+   */
+  public static void main(String... args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: SignalLogDecoder <log file> <output directory> [csv|columnar]");
+      System.exit(1);
+    }
+    Path outputDir = Paths.get(args[1]);
+    String format = args.length > 2 ? args[2] : "csv";
+
+    Log log = read(Paths.get(args[0]));
+    Files.createDirectories(outputDir);
+    if ("csv".equals(format)) {
+      writeCsv(log, outputDir.resolve("signals.csv"));
+    } else if ("columnar".equals(format)) {
+      writeColumns(log, outputDir);
+    } else {
+      throw new IllegalArgumentException("Unknown format: " + format);
+    }
+    System.out.printf("Decoded %d records of %d channels into %s%n", log.recordCount, log.names.size(), outputDir);
+  }
+
+  private static Log read(Path file) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    if (buffer.getInt(SignalLogFormat.MAGIC_OFFSET) != SignalLogFormat.MAGIC) {
+      throw new IOException(file + " is not a signal log");
+    }
+    int version = buffer.getInt(SignalLogFormat.VERSION_OFFSET);
+    if (version != SignalLogFormat.VERSION) {
+      throw new IOException(file + " has version " + version + ", expected " + SignalLogFormat.VERSION);
+    }
+
+    Log log = new Log();
+    int channelCount = buffer.getInt(SignalLogFormat.CHANNEL_COUNT_OFFSET);
+    int position = SignalLogFormat.HEADER_SIZE;
+    for (int i = 0; i < channelCount; i++) {
+      byte[] name = new byte[buffer.getShort(position)];
+      position += Short.BYTES;
+      for (int j = 0; j < name.length; j++) {
+        name[j] = buffer.get(position++);
+      }
+      log.names.add(new String(name, StandardCharsets.UTF_8));
+    }
+
+    int capacity = buffer.getInt(SignalLogFormat.CAPACITY_OFFSET);
+    int recordsOffset = buffer.getInt(SignalLogFormat.RECORDS_OFFSET_OFFSET);
+    int recordSize = SignalLogFormat.recordSize(channelCount);
+    long written = buffer.getLong(SignalLogFormat.RECORD_COUNT_OFFSET);
+    log.recordCount = (int) Math.min(written, capacity);
+    long first = written - log.recordCount;
+
+    log.times = new double[log.recordCount];
+    log.values = new float[channelCount][log.recordCount];
+    long startTime = 0;
+    for (int r = 0; r < log.recordCount; r++) {
+      int recordPosition = recordsOffset + (int) ((first + r) % capacity) * recordSize;
+      long timestamp = buffer.getLong(recordPosition);
+      if (r == 0) {
+        startTime = timestamp;
+      }
+      log.times[r] = (timestamp - startTime) / 1e6;
+      for (int c = 0; c < channelCount; c++) {
+        log.values[c][r] = buffer.getFloat(recordPosition + Long.BYTES + c * Float.BYTES);
+      }
+    }
+    return log;
+  }
+
+  private static void writeCsv(Log log, Path file) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+      writer.write("Time (s)");
+      for (String name : log.names) {
+        writer.write(',');
+        writer.write(csvField(name));
+      }
+      writer.newLine();
+      for (int r = 0; r < log.recordCount; r++) {
+        writer.write(Double.toString(log.times[r]));
+        for (float[] column : log.values) {
+          writer.write(',');
+          writer.write(Float.toString(column[r]));
+        }
+        writer.newLine();
+      }
+    }
+  }
+
+  private static String csvField(String value) {
+    if (value.contains(",") || value.contains("\"")) {
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    return value;
+  }
+
+  private static void writeColumns(Log log, Path directory) throws IOException {
+    List<String> schema = new ArrayList<>();
+    schema.add("time.f64\tTime (s)\tfloat64");
+    ByteBuffer times = ByteBuffer.allocate(log.recordCount * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    for (double time : log.times) {
+      times.putDouble(time);
+    }
+    Files.write(directory.resolve("time.f64"), times.array());
+
+    for (int c = 0; c < log.names.size(); c++) {
+      String fileName = String.format("%03d_%s.f32", c, log.names.get(c).replaceAll("[^A-Za-z0-9]+", "_"));
+      ByteBuffer column = ByteBuffer.allocate(log.recordCount * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      for (float value : log.values[c]) {
+        column.putFloat(value);
+      }
+      Files.write(directory.resolve(fileName), column.array());
+      schema.add(fileName + "\t" + log.names.get(c) + "\tfloat32");
+    }
+    Files.write(directory.resolve("schema.txt"), schema);
+  }
+
+  /**
+   * A decoded log, oldest record first.
+   */
+  private static final class Log {
+    final List<String> names = new ArrayList<>();
+    int recordCount;
+    double[] times;
+    float[][] values;
+  }
+}
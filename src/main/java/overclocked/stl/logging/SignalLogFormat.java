@@ -0,0 +1,37 @@
+
+package overclocked.stl.logging;
+
+/**
+ * The layout of the files written by {@link SignalLogger}. Every value is little-endian.
+ *
+ * <pre>
+ * offset  size  field
+ *      0     4  magic, "OCSL"
+ *      4     4  version
+ *      8     4  channel count
+ *     12     4  capacity, in records
+ *     16     4  offset of the first record
+ *     20     4  (reserved)
+ *     24     8  number of records written since the log was started
+ *     32     -  channel names, each a 2-byte length and that many bytes of UTF-8
+ *      -     -  records, each an 8-byte FPGA timestamp (us) and a 4-byte float per channel
+ * </pre>
+ */
+final class SignalLogFormat {
+  static final int MAGIC = 0x4C53434F; // "OCSL" read as little-endian bytes
+  static final int VERSION = 1;
+
+  static final int MAGIC_OFFSET = 0;
+  static final int VERSION_OFFSET = 4;
+  static final int CHANNEL_COUNT_OFFSET = 8;
+  static final int CAPACITY_OFFSET = 12;
+  static final int RECORDS_OFFSET_OFFSET = 16;
+  static final int RECORD_COUNT_OFFSET = 24;
+  static final int HEADER_SIZE = 32;
+
+  private SignalLogFormat() {}
+
+  static int recordSize(int channelCount) {
+    return Long.BYTES + channelCount * Float.BYTES;
+  }
+}
@@ -0,0 +1,200 @@
+
+package overclocked.stl.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.BaseTalon;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+import com.revrobotics.RelativeEncoder;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Logs signals (motor outputs, currents, sensor values) at a fixed rate, well above the robot loop rate, into a
+ * memory-mapped ring file.
+ *
+ * <p>
+ * Channels are registered once at startup; {@link #start(File, int, double)} then preallocates and maps the file and
+ * starts a {@link Notifier} that samples every channel into one fixed-width record per period. Writing a record is a
+ * handful of stores into the mapped buffer, with no allocation and no system call; the kernel writes the pages back
+ * to the file on its own. The control thread does not take part in logging at all. Once the file is full, the oldest
+ * records are overwritten.
+ *
+ * <p>
+ * The file is little-endian: a header (see {@link SignalLogFormat}), the channel names, and then the records, each
+ * an FPGA timestamp in microseconds (a long) followed by one float per channel. {@link SignalLogDecoder} converts a
+ * log to CSV or to one file per column.
+ *
+ * <p>
+ * A channel can only change as often as the device sends the status frame that carries it, so the addMotor() methods
+ * also shorten those frames to the given period. Otherwise most samples would repeat the last 20 ms frame.
+ */
+public final class SignalLogger {
+  private static SignalLogger instance;
+
+  private final List<String> names = new ArrayList<>();
+  private final List<DoubleSupplier> sources = new ArrayList<>();
+
+  private DoubleSupplier[] channels;
+  private MappedByteBuffer buffer;
+  private int recordsOffset;
+  private int recordSize;
+  private int capacity;
+  private volatile long recordCount = 0;
+  private Notifier notifier;
+
+  /**
+   * Returns the SignalLogger instance, creating it if necessary.
+   *
+   * @return the instance
+   */
+  public static synchronized SignalLogger getInstance() {
+    if (instance == null) {
+      instance = new SignalLogger();
+    }
+    return instance;
+  }
+
+  private SignalLogger() {}
+
+  /**
+   * Adds a channel. Must be called before {@link #start(File, int, double)}.
+   *
+   * @param name The name of the channel, e.g. "Climber/Left/Current"
+   * @param source Reads the value of the channel. Called from the logger thread, so it must be thread safe.
+   */
+  public synchronized void addChannel(String name, DoubleSupplier source) {
+    if (buffer != null) {
+      throw new IllegalStateException("Channels must be added before the SignalLogger is started");
+    }
+    names.add(name);
+    sources.add(source);
+  }
+
+  /**
+   * Adds the output (percent), stator current (A), position and velocity (native units) of a Talon, and sets the
+   * status frames that carry them to the given period.
+   *
+   * @param name The prefix of the channel names, e.g. "DriveBase/Left Front"
+   * @param controller The motor controller
+   * @param statusFramePeriodMs The status frame period, in ms, or 0 to leave the frames at their defaults
+   */
+  public void addMotor(String name, BaseTalon controller, int statusFramePeriodMs) {
+    if (statusFramePeriodMs > 0) {
+      controller.setStatusFramePeriod(StatusFrameEnhanced.Status_1_General, statusFramePeriodMs);
+      controller.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, statusFramePeriodMs);
+      controller.setStatusFramePeriod(StatusFrameEnhanced.Status_Brushless_Current, statusFramePeriodMs);
+    }
+    addChannel(name + "/Output", controller::getMotorOutputPercent);
+    addChannel(name + "/Current", controller::getStatorCurrent);
+    addChannel(name + "/Position", controller::getSelectedSensorPosition);
+    addChannel(name + "/Velocity", controller::getSelectedSensorVelocity);
+  }
+
+  /**
+   * Adds the output (percent), current (A), position (rotations) and velocity (RPM) of a CANSparkMax, and sets the
+   * periodic frames that carry them to the given period.
+   *
+   * @param name The prefix of the channel names, e.g. "Tower/Top Left"
+   * @param controller The motor controller
+   * @param statusFramePeriodMs The periodic frame period, in ms, or 0 to leave the frames at their defaults
+   */
+  public void addMotor(String name, CANSparkMax controller, int statusFramePeriodMs) {
+    if (statusFramePeriodMs > 0) {
+      controller.setPeriodicFramePeriod(PeriodicFrame.kStatus0, statusFramePeriodMs);
+      controller.setPeriodicFramePeriod(PeriodicFrame.kStatus1, statusFramePeriodMs);
+      controller.setPeriodicFramePeriod(PeriodicFrame.kStatus2, statusFramePeriodMs);
+    }
+    RelativeEncoder encoder = controller.getEncoder();
+    addChannel(name + "/Output", controller::getAppliedOutput);
+    addChannel(name + "/Current", controller::getOutputCurrent);
+    addChannel(name + "/Position", encoder::getPosition);
+    addChannel(name + "/Velocity", encoder::getVelocity);
+  }
+
+  /**
+   * Creates (or truncates) the log file at its full size, maps it, and starts sampling every channel.
+   *
+   * @param file The file to log to
+   * @param capacity The number of records the file holds before the oldest are overwritten
+   * @param period The time between two records, in seconds
+   */
+  public synchronized void start(File file, int capacity, double period) {
+    if (buffer != null) {
+      throw new IllegalStateException("The SignalLogger is already started");
+    }
+    channels = sources.toArray(new DoubleSupplier[0]);
+    byte[][] encodedNames = new byte[names.size()][];
+    int namesSize = 0;
+    for (int i = 0; i < encodedNames.length; i++) {
+      encodedNames[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+      namesSize += Short.BYTES + encodedNames[i].length;
+    }
+    this.capacity = capacity;
+    recordSize = SignalLogFormat.recordSize(channels.length);
+    recordsOffset = SignalLogFormat.HEADER_SIZE + namesSize;
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      long size = recordsOffset + (long) recordSize * capacity;
+      raf.setLength(size);
+      buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      DriverStation.reportError("Could not create signal log " + file + ": " + e, false);
+      return;
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    buffer.putInt(SignalLogFormat.MAGIC_OFFSET, SignalLogFormat.MAGIC);
+    buffer.putInt(SignalLogFormat.VERSION_OFFSET, SignalLogFormat.VERSION);
+    buffer.putInt(SignalLogFormat.CHANNEL_COUNT_OFFSET, channels.length);
+    buffer.putInt(SignalLogFormat.CAPACITY_OFFSET, capacity);
+    buffer.putInt(SignalLogFormat.RECORDS_OFFSET_OFFSET, recordsOffset);
+    buffer.putLong(SignalLogFormat.RECORD_COUNT_OFFSET, 0);
+    int position = SignalLogFormat.HEADER_SIZE;
+    for (byte[] name : encodedNames) {
+      buffer.putShort(position, (short) name.length);
+      position += Short.BYTES;
+      for (byte b : name) {
+        buffer.put(position++, b);
+      }
+    }
+
+    notifier = new Notifier(this::sample);
+    notifier.setName("SignalLogger");
+    notifier.startPeriodic(period);
+  }
+
+  /**
+   * Writes one record. Runs on the Notifier thread.
+   */
+  private void sample() {
+    int position = recordsOffset + (int) (recordCount % capacity) * recordSize;
+    buffer.putLong(position, RobotController.getFPGATime());
+    position += Long.BYTES;
+    for (int i = 0; i < channels.length; i++) {
+      buffer.putFloat(position, (float) channels[i].getAsDouble());
+      position += Float.BYTES;
+    }
+    // Written last, so a reader of a crashed log never sees a half-written record as valid.
+    buffer.putLong(SignalLogFormat.RECORD_COUNT_OFFSET, ++recordCount);
+  }
+
+  /**
+   * Returns the number of records written since the logger was started.
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+}
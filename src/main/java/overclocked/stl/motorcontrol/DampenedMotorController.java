@@ -2,49 +2,64 @@
 package overclocked.stl.motorcontrol;
 
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.wpilibj.motorcontrol.MotorController;
 
 /**
- * A wrapper that adds a slew rate limit to a motor controller.
+ * A wrapper that adds a slew rate limit to a motor controller, with separate limits for speeding up and slowing
+ * down and an optional jerk limit (see {@link SlewLimiter}).
  */
 public class DampenedMotorController implements MotorController {
   private final MotorController controller;
-  private SlewRateLimiter dampener;
-
-  /*
-   * This stores the last calculated speed from the dampener because the SlewRateLimiter
-   * doesn't have a way of retrieving this value. 
-   * 
-   * TODO: Put up a merge request to WPILib that adds this functionality to SlewRateLimiter.
-   */
-  private double lastSpeed = 0;
+  // Its limits may be changed from another thread than set().
+  private final SlewLimiter dampener;
 
   /**
-   * Creates a new DampenedMotorController with the given rate limit. 
+   * Creates a new DampenedMotorController with the given rate limit in both directions.
    *
    * @param controller The motor controller to wrap.
    * @param rateLimit The maximum rate of change in output percentage per second.
    */
   public DampenedMotorController(MotorController controller, double rateLimit) {
     this.controller = controller;
-    this.dampener = new SlewRateLimiter(rateLimit);
+    this.dampener = new SlewLimiter(rateLimit);
   }
 
   /**
-   * Creates a new DampenedMotorController with an (effectively) infinite rate limit.
+   * Creates a new DampenedMotorController without a rate limit.
    * @param controller The motor controller to wrap.
    */
   public DampenedMotorController(MotorController controller) {
-    this(controller, 999999999);
+    this(controller, Double.POSITIVE_INFINITY);
   }
 
   /**
-   * Sets a new rate limit for the motor controller.
+   * Sets a new rate limit for the motor controller, in both directions. Does not allocate, so it can be called on
+   * every loop.
    * @param rateLimit The maximum rate of change in output percentage per second.
    */
   public void setRateLimit(double rateLimit) {
-    dampener = new SlewRateLimiter(rateLimit, lastSpeed);
+    setRateLimits(rateLimit, rateLimit);
+  }
+
+  /**
+   * Sets new rate limits for speeding up and slowing down. Does not allocate, so it can be called on every loop.
+   *
+   * @param accelerationLimit The maximum rate of change away from zero, in output percentage per second.
+   * @param decelerationLimit The maximum rate of change towards zero, in output percentage per second.
+   */
+  public void setRateLimits(double accelerationLimit, double decelerationLimit) {
+    dampener.setAccelerationLimit(accelerationLimit);
+    dampener.setDecelerationLimit(decelerationLimit);
+  }
+
+  /**
+   * Sets a new jerk limit.
+   *
+   * @param jerkLimit The maximum change of the rate of change, in output percentage per second squared, or
+   *        {@link Double#POSITIVE_INFINITY} for none.
+   */
+  public void setJerkLimit(double jerkLimit) {
+    dampener.setJerkLimit(jerkLimit);
   }
 
   /**
@@ -58,8 +73,10 @@ public class DampenedMotorController implements MotorController {
    */
   @Override
   public void set(double speed) {
-    lastSpeed = dampener.calculate(MathUtil.clamp(speed, -1, 1));
-    controller.set(lastSpeed);
+    if (OutputGate.isInhibited()) {
+      return;
+    }
+    controller.set(dampener.calculate(MathUtil.clamp(speed, -1, 1)));
   }
 
   @Override
@@ -79,11 +96,11 @@ public class DampenedMotorController implements MotorController {
      * to the last speed, but inverted. This allows the motor controller to respect
      * the rate limit, and not perform a full speed invert immediately.
      */
-    lastSpeed = -lastSpeed;
-    dampener.reset(lastSpeed);
+    double invertedSpeed = -dampener.get();
+    dampener.reset(invertedSpeed);
     controller.stopMotor();
     controller.setInverted(isInverted);
-    controller.set(lastSpeed);
+    controller.set(invertedSpeed);
   }
 
   @Override
@@ -100,7 +117,6 @@ public class DampenedMotorController implements MotorController {
   @Override
   public void disable() {
     dampener.reset(0);
-    lastSpeed = 0;
     controller.disable();
   }
 
@@ -111,7 +127,6 @@ public class DampenedMotorController implements MotorController {
   @Override
   public void stopMotor() {
     dampener.reset(0);
-    lastSpeed = 0;
     controller.stopMotor();
   }
 }
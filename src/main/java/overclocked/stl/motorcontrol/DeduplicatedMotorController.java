@@ -0,0 +1,131 @@
+
+package overclocked.stl.motorcontrol;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
+
+/**
+ * A wrapper that skips writes to a motor controller when the output and control mode have not changed.
+ *
+ * <p>
+ * An unchanged output is still re-sent once every keep-alive period, so that motor safety and the controller's own
+ * timeouts keep seeing regular updates. Nothing is sent while the {@link OutputGate} is closed.
+ */
+public class DeduplicatedMotorController implements MotorController {
+  private static final double DEFAULT_KEEP_ALIVE_PERIOD = 0.05;
+
+  private enum Mode {
+    NONE, PERCENT, VOLTAGE
+  }
+
+  private final MotorController controller;
+  private final long keepAlivePeriodMicros;
+
+  private Mode lastMode = Mode.NONE;
+  private double lastOutput = 0;
+  private long lastWriteTime = 0;
+  private long skippedWrites = 0;
+
+  /**
+   * Creates a new DeduplicatedMotorController with the given keep-alive period.
+   *
+   * @param controller The motor controller to wrap.
+   * @param keepAlivePeriod The maximum time, in seconds, between two writes of the same output.
+   */
+  public DeduplicatedMotorController(MotorController controller, double keepAlivePeriod) {
+    this.controller = controller;
+    this.keepAlivePeriodMicros = (long) (keepAlivePeriod * 1e6);
+  }
+
+  /**
+   * Creates a new DeduplicatedMotorController that re-sends an unchanged output every 50 ms, half of the default
+   * motor safety expiration.
+   *
+   * @param controller The motor controller to wrap.
+   */
+  public DeduplicatedMotorController(MotorController controller) {
+    this(controller, DEFAULT_KEEP_ALIVE_PERIOD);
+  }
+
+  /**
+   * Sets the output percentage of the motor controller, unless it was already sent recently.
+   *
+   * @param speed The output percentage.
+   */
+  @Override
+  public void set(double speed) {
+    if (shouldWrite(Mode.PERCENT, speed)) {
+      controller.set(speed);
+    }
+  }
+
+  /**
+   * Sets the output voltage of the motor controller, unless it was already sent recently.
+   *
+   * @param outputVolts The output voltage.
+   */
+  @Override
+  public void setVoltage(double outputVolts) {
+    if (shouldWrite(Mode.VOLTAGE, outputVolts)) {
+      controller.setVoltage(outputVolts);
+    }
+  }
+
+  private boolean shouldWrite(Mode mode, double output) {
+    if (OutputGate.isInhibited()) {
+      return false;
+    }
+    long now = RobotController.getFPGATime();
+    if (mode == lastMode && output == lastOutput && now - lastWriteTime < keepAlivePeriodMicros) {
+      skippedWrites++;
+      return false;
+    }
+    lastMode = mode;
+    lastOutput = output;
+    lastWriteTime = now;
+    return true;
+  }
+
+  /**
+   * Forgets the last sent output, so that the next call to set() is always sent. Must be called after the wrapped
+   * controller was commanded directly, e.g. in a closed-loop mode.
+   */
+  public void invalidate() {
+    lastMode = Mode.NONE;
+  }
+
+  /**
+   * Returns the number of writes that were skipped because they would not have changed the output.
+   */
+  public long getSkippedWrites() {
+    return skippedWrites;
+  }
+
+  @Override
+  public double get() {
+    return controller.get();
+  }
+
+  @Override
+  public void setInverted(boolean isInverted) {
+    controller.setInverted(isInverted);
+    invalidate();
+  }
+
+  @Override
+  public boolean getInverted() {
+    return controller.getInverted();
+  }
+
+  @Override
+  public void disable() {
+    controller.disable();
+    invalidate();
+  }
+
+  @Override
+  public void stopMotor() {
+    controller.stopMotor();
+    invalidate();
+  }
+}
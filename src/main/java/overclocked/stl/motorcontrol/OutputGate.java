@@ -0,0 +1,41 @@
+
+package overclocked.stl.motorcontrol;
+
+/**
+ * A robot-wide switch that stops motor outputs from being sent, so that the real control code can be run without
+ * moving anything (e.g. by {@link overclocked.stl.command.CommandWarmup}).
+ *
+ * <p>
+ * The wrappers in this package check the gate in set() and setVoltage(). Code that commands a motor controller
+ * directly (e.g. in a closed-loop mode), or that changes state that should survive the warm-up (e.g. resetting the
+ * odometry or zeroing an encoder), must check {@link #isInhibited()} itself. stopMotor() and disable() are always let
+ * through.
+ */
+public final class OutputGate {
+  private static volatile boolean inhibited = false;
+
+  private OutputGate() {}
+
+  /**
+   * Returns whether motor outputs must currently not be sent.
+   *
+   * @return whether outputs are inhibited
+   */
+  public static boolean isInhibited() {
+    return inhibited;
+  }
+
+  /**
+   * Stops motor outputs from being sent until {@link #release()} is called.
+   */
+  public static void inhibit() {
+    inhibited = true;
+  }
+
+  /**
+   * Lets motor outputs be sent again.
+   */
+  public static void release() {
+    inhibited = false;
+  }
+}
@@ -1,16 +1,31 @@
 
 package overclocked.stl.motorcontrol;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
 import edu.wpi.first.wpilibj.motorcontrol.MotorController;
 
 /** 
  * An extension of the {@link DifferentialDrive} class that adds slew rate limiting.
+ *
+ * <p>
+ * By default the outputs are sent from the thread that calls the drive methods. In high-rate output mode (see
+ * {@link #startHighRateOutput(double)}) the drive methods only publish the mixed left and right setpoints, and a
+ * {@link Notifier} sends them through the slew rate limiters at a faster, steadier rate than the robot loop. The
+ * two setpoints are handed off as two floats packed into one volatile long, so the Notifier always sees a
+ * consistent pair without locking, and it is the only thread that writes to the motors.
  */
 public class OverclockedDifferentialDrive extends DifferentialDrive {
   private final DampenedMotorController left;
   private final DampenedMotorController right;
 
+  private volatile Notifier outputNotifier;
+  private volatile long packedSetpoints = 0;
+  private volatile boolean stopRequested = false;
+  private double leftRequest = 0;
+  private double rightRequest = 0;
 
   private OverclockedDifferentialDrive(DampenedMotorController left, DampenedMotorController right) {
     super(left, right);
@@ -19,7 +34,7 @@ public class OverclockedDifferentialDrive extends DifferentialDrive {
   }
 
   /**
-   * Creates a new OverclockedDifferentialDrive with an (effectively) infinite rate limit.
+   * Creates a new OverclockedDifferentialDrive without a rate limit.
    *
    * @param left The left motor controller.
    * @param right The right motor controller.
@@ -48,5 +63,233 @@ public class OverclockedDifferentialDrive extends DifferentialDrive {
     right.setRateLimit(rateLimit);
   }
 
+  /**
+   * Sets new rate limits for speeding up and slowing down, e.g. to brake harder than the robot accelerates.
+   *
+   * @param accelerationLimit The maximum rate of change away from zero, in output percentage per second.
+   * @param decelerationLimit The maximum rate of change towards zero, in output percentage per second.
+   */
+  public void setRateLimits(double accelerationLimit, double decelerationLimit) {
+    left.setRateLimits(accelerationLimit, decelerationLimit);
+    right.setRateLimits(accelerationLimit, decelerationLimit);
+  }
+
+  /**
+   * Sets a new jerk limit for the motor controllers.
+   *
+   * @param jerkLimit The maximum change of the rate of change, in output percentage per second squared, or
+   *        {@link Double#POSITIVE_INFINITY} for none.
+   */
+  public void setJerkLimit(double jerkLimit) {
+    left.setJerkLimit(jerkLimit);
+    right.setJerkLimit(jerkLimit);
+  }
+
+  /**
+   * Starts sending the outputs from a {@link Notifier} with the given period, instead of from the caller of the drive
+   * methods. Does nothing if high-rate output is already running.
+   *
+   * @param period The time between two output updates, in seconds, e.g. 0.004 for 250 Hz.
+   */
+  public void startHighRateOutput(double period) {
+    if (outputNotifier != null) {
+      return;
+    }
+    Notifier notifier = new Notifier(this::writeOutputs);
+    notifier.setName("DriveOutput");
+    outputNotifier = notifier;
+    notifier.startPeriodic(period);
+  }
+
+  /**
+   * Stops the high-rate output {@link Notifier}, and goes back to sending the outputs from the caller of the drive
+   * methods.
+   */
+  public void stopHighRateOutput() {
+    Notifier notifier = outputNotifier;
+    if (notifier == null) {
+      return;
+    }
+    outputNotifier = null;
+    notifier.close();
+  }
+
+  /**
+   * Returns whether the outputs are sent by the high-rate output {@link Notifier}.
+   */
+  public boolean isHighRateOutput() {
+    return outputNotifier != null;
+  }
+
+  /**
+   * Returns the output last requested for the left side, before {@link #setMaxOutput(double)} and the slew rate
+   * limit.
+   */
+  public double getLeftRequest() {
+    return leftRequest;
+  }
+
+  /**
+   * Returns the output last requested for the right side, before {@link #setMaxOutput(double)} and the slew rate
+   * limit.
+   */
+  public double getRightRequest() {
+    return rightRequest;
+  }
+
+  /**
+   * Scales the left and right outputs by the max output, and sends them or publishes them to the high-rate output
+   * {@link Notifier}.
+   */
+  private void setOutputs(double leftSpeed, double rightSpeed) {
+    leftRequest = leftSpeed;
+    rightRequest = rightSpeed;
+    leftSpeed *= m_maxOutput;
+    rightSpeed *= m_maxOutput;
+    if (outputNotifier == null) {
+      left.set(leftSpeed);
+      right.set(rightSpeed);
+    } else if (!OutputGate.isInhibited()) {
+      packedSetpoints = ((long) Float.floatToRawIntBits((float) leftSpeed) << 32)
+          | (Float.floatToRawIntBits((float) rightSpeed) & 0xFFFFFFFFL);
+    }
+    feed();
+  }
+
+  /**
+   * Sends the latest published setpoints. Runs on the high-rate output {@link Notifier}.
+   */
+  private void writeOutputs() {
+    if (stopRequested) {
+      stopRequested = false;
+      left.stopMotor();
+      right.stopMotor();
+      return;
+    }
+    long setpoints = packedSetpoints;
+    left.set(Float.intBitsToFloat((int) (setpoints >>> 32)));
+    right.set(Float.intBitsToFloat((int) setpoints));
+  }
+
+  /**
+   * Stops both motors at full speed. In high-rate output mode, the motors are stopped by the {@link Notifier} in its
+   * next update.
+   */
+  @Override
+  public void stopMotor() {
+    if (outputNotifier == null) {
+      leftRequest = 0;
+      rightRequest = 0;
+      super.stopMotor();
+      return;
+    }
+    leftRequest = 0;
+    rightRequest = 0;
+    packedSetpoints = 0;
+    stopRequested = true;
+    feed();
+  }
+
+  @Override
+  public void close() {
+    stopHighRateOutput();
+    super.close();
+  }
+
+  /**
+   * Arcade drive method for differential drive platform. Same as
+   * {@link DifferentialDrive#arcadeDrive(double, double, boolean)}, but mixes the wheel speeds in place instead of
+   * allocating a {@link DifferentialDrive.WheelSpeeds} on every call.
+   *
+   * @param xSpeed The robot's speed along the X axis [-1.0..1.0]. Forward is positive.
+   * @param zRotation The robot's rotation rate around the Z axis [-1.0..1.0]. Clockwise is positive.
+   * @param squareInputs If set, decreases the input sensitivity at low speeds.
+   */
+  @Override
+  public void arcadeDrive(double xSpeed, double zRotation, boolean squareInputs) {
+    xSpeed = MathUtil.clamp(MathUtil.applyDeadband(xSpeed, m_deadband), -1.0, 1.0);
+    zRotation = MathUtil.clamp(MathUtil.applyDeadband(zRotation, m_deadband), -1.0, 1.0);
+
+    if (squareInputs) {
+      xSpeed = Math.copySign(xSpeed * xSpeed, xSpeed);
+      zRotation = Math.copySign(zRotation * zRotation, zRotation);
+    }
+
+    double leftSpeed;
+    double rightSpeed;
+    double maxInput = Math.copySign(Math.max(Math.abs(xSpeed), Math.abs(zRotation)), xSpeed);
+
+    if (xSpeed >= 0.0) {
+      if (zRotation >= 0.0) {
+        leftSpeed = maxInput;
+        rightSpeed = xSpeed - zRotation;
+      } else {
+        leftSpeed = xSpeed + zRotation;
+        rightSpeed = maxInput;
+      }
+    } else {
+      if (zRotation >= 0.0) {
+        leftSpeed = xSpeed + zRotation;
+        rightSpeed = maxInput;
+      } else {
+        leftSpeed = maxInput;
+        rightSpeed = xSpeed - zRotation;
+      }
+    }
+
+    double maxMagnitude = Math.max(Math.abs(leftSpeed), Math.abs(rightSpeed));
+    if (maxMagnitude > 1.0) {
+      leftSpeed /= maxMagnitude;
+      rightSpeed /= maxMagnitude;
+    }
+
+    setOutputs(leftSpeed, rightSpeed);
+  }
+
+  /**
+   * Tank drive method for differential drive platform. Same as
+   * {@link DifferentialDrive#tankDrive(double, double, boolean)}, but without allocating a
+   * {@link DifferentialDrive.WheelSpeeds} on every call.
+   *
+   * @param leftSpeed The robot left side's speed along the X axis [-1.0..1.0]. Forward is positive.
+   * @param rightSpeed The robot right side's speed along the X axis [-1.0..1.0]. Forward is positive.
+   * @param squareInputs If set, decreases the input sensitivity at low speeds.
+   */
+  @Override
+  public void tankDrive(double leftSpeed, double rightSpeed, boolean squareInputs) {
+    leftSpeed = MathUtil.clamp(MathUtil.applyDeadband(leftSpeed, m_deadband), -1.0, 1.0);
+    rightSpeed = MathUtil.clamp(MathUtil.applyDeadband(rightSpeed, m_deadband), -1.0, 1.0);
+
+    if (squareInputs) {
+      leftSpeed = Math.copySign(leftSpeed * leftSpeed, leftSpeed);
+      rightSpeed = Math.copySign(rightSpeed * rightSpeed, rightSpeed);
+    }
+
+    setOutputs(leftSpeed, rightSpeed);
+  }
+
+  /**
+   * Drives each side at the given voltage, compensated for the current battery voltage. Skips the deadband and
+   * input squaring of the other drive methods, but still goes through the slew rate limiters.
+   *
+   * @param leftVolts The left side's voltage. Forward is positive.
+   * @param rightVolts The right side's voltage. Forward is positive.
+   */
+  public void tankDriveVolts(double leftVolts, double rightVolts) {
+    double batteryVoltage = RobotController.getBatteryVoltage();
+    tankDriveRaw(leftVolts / batteryVoltage, rightVolts / batteryVoltage);
+  }
+
+  /**
+   * Drives each side at the given output percentage, without the deadband and input squaring of the other drive
+   * methods, but still through the slew rate limiters. Meant for outputs computed by a controller rather than read
+   * from a joystick.
+   *
+   * @param leftSpeed The left side's output [-1.0..1.0]. Forward is positive.
+   * @param rightSpeed The right side's output [-1.0..1.0]. Forward is positive.
+   */
+  public void tankDriveRaw(double leftSpeed, double rightSpeed) {
+    setOutputs(MathUtil.clamp(leftSpeed, -1.0, 1.0), MathUtil.clamp(rightSpeed, -1.0, 1.0));
+  }
 }
 
@@ -0,0 +1,149 @@
+package overclocked.stl.motorcontrol;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * A mutable rate limiter with separate limits for speeding up and slowing down, and an optional jerk limit.
+ *
+ * <p>
+ * Speeding up means moving away from zero, and slowing down means moving towards it, so a drive can brake harder
+ * than it accelerates. With a jerk limit, the rate of change itself ramps up and down, and is eased off ahead of the
+ * target so that the output does not overshoot. Time steps come from the FPGA clock.
+ *
+ * <p>
+ * The limits can be changed at any time, from any thread, without allocating; the output is kept. Only one thread
+ * may call {@link #calculate(double)} and {@link #reset(double)}.
+ */
+public class SlewLimiter {
+  private volatile double accelerationLimit;
+  private volatile double decelerationLimit;
+  private volatile double jerkLimit;
+
+  private double value = 0;
+  private double rate = 0;
+  private long lastTime;
+
+  /**
+   * Creates a limiter that starts at 0.
+   *
+   * @param accelerationLimit The maximum rate of change away from zero, in units per second
+   * @param decelerationLimit The maximum rate of change towards zero, in units per second
+   * @param jerkLimit The maximum change of the rate of change, in units per second squared, or
+   *        {@link Double#POSITIVE_INFINITY} for none
+   */
+  public SlewLimiter(double accelerationLimit, double decelerationLimit, double jerkLimit) {
+    this.accelerationLimit = accelerationLimit;
+    this.decelerationLimit = decelerationLimit;
+    this.jerkLimit = jerkLimit;
+    this.lastTime = RobotController.getFPGATime();
+  }
+
+  /**
+   * Creates a limiter that starts at 0, with the same limit in both directions and no jerk limit.
+   *
+   * @param rateLimit The maximum rate of change, in units per second
+   */
+  public SlewLimiter(double rateLimit) {
+    this(rateLimit, rateLimit, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Creates a limiter that starts at 0 and does not limit anything.
+   */
+  public SlewLimiter() {
+    this(Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Sets the maximum rate of change away from zero.
+   *
+   * @param accelerationLimit The limit, in units per second
+   */
+  public void setAccelerationLimit(double accelerationLimit) {
+    this.accelerationLimit = accelerationLimit;
+  }
+
+  /**
+   * Sets the maximum rate of change towards zero.
+   *
+   * @param decelerationLimit The limit, in units per second
+   */
+  public void setDecelerationLimit(double decelerationLimit) {
+    this.decelerationLimit = decelerationLimit;
+  }
+
+  /**
+   * Sets the maximum change of the rate of change.
+   *
+   * @param jerkLimit The limit, in units per second squared, or {@link Double#POSITIVE_INFINITY} for none
+   */
+  public void setJerkLimit(double jerkLimit) {
+    this.jerkLimit = jerkLimit;
+  }
+
+  /**
+   * Moves the output towards the input as far as the limits allow since the last call.
+   *
+   * @param input The input
+   * @return the limited output
+   */
+  public double calculate(double input) {
+    long now = RobotController.getFPGATime();
+    double dt = (now - lastTime) * 1e-6;
+    lastTime = now;
+
+    double error = input - value;
+    if (error == 0) {
+      rate = 0;
+      return value;
+    }
+    if (dt <= 0) {
+      return value;
+    }
+
+    boolean towardsZero = value != 0 && (error > 0) != (value > 0);
+    double maxRate = towardsZero ? decelerationLimit : accelerationLimit;
+    double jerk = jerkLimit;
+
+    // The fastest rate that still reaches the input without overshooting: within this step, and (with a jerk limit)
+    // while leaving room to ease the rate back to zero.
+    double targetRate = Math.min(maxRate, Math.abs(error) / dt);
+    if (jerk != Double.POSITIVE_INFINITY) {
+      targetRate = Math.min(targetRate, Math.sqrt(2 * jerk * Math.abs(error)));
+    }
+    targetRate = Math.copySign(targetRate, error);
+
+    if (jerk == Double.POSITIVE_INFINITY) {
+      rate = targetRate;
+    } else {
+      double maxRateChange = jerk * dt;
+      rate += Math.max(-maxRateChange, Math.min(maxRateChange, targetRate - rate));
+    }
+
+    double next = value + rate * dt;
+    if ((input - next > 0) != (error > 0)) {
+      next = input;
+      rate = 0;
+    }
+    value = next;
+    return value;
+  }
+
+  /**
+   * Returns the last output.
+   */
+  public double get() {
+    return value;
+  }
+
+  /**
+   * Jumps the output to the given value, at rest.
+   *
+   * @param value The new output
+   */
+  public void reset(double value) {
+    this.value = value;
+    this.rate = 0;
+    this.lastTime = RobotController.getFPGATime();
+  }
+}
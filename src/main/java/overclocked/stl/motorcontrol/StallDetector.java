@@ -0,0 +1,90 @@
+
+package overclocked.stl.motorcontrol;
+
+/**
+ * Detects that a motor has stalled against a hard stop, from its current and velocity.
+ *
+ * <p>
+ * A stalled motor draws a lot of current while barely moving. The current is low-pass filtered so that single noisy
+ * samples are ignored, and the motor only counts as stalled once the filtered current has stayed above the current
+ * threshold, with the velocity below the velocity threshold, for the debounce time. Samples in the blanking time
+ * after {@link #reset(long)} are ignored, since a motor starting from rest also draws a lot of current without moving.
+ */
+public class StallDetector {
+  private final double currentThreshold;
+  private final double velocityThreshold;
+  private final double filterTimeConstantMicros;
+  private final long debounceMicros;
+  private final long blankingMicros;
+
+  private double filteredCurrent;
+  private long startTime;
+  private long lastTime;
+  private long stallStartTime;
+  private boolean stalling;
+
+  /**
+   * Creates a detector.
+   *
+   * @param currentThreshold The filtered current above which the motor may be stalled, in amps
+   * @param velocityThreshold The absolute velocity below which the motor may be stalled, in sensor units
+   * @param filterTimeConstant The time constant of the current filter, in seconds
+   * @param debounceTime How long the stall signature must last, in seconds
+   * @param blankingTime How long to ignore samples for after a reset, in seconds
+   */
+  public StallDetector(double currentThreshold, double velocityThreshold, double filterTimeConstant,
+      double debounceTime, double blankingTime) {
+    this.currentThreshold = currentThreshold;
+    this.velocityThreshold = velocityThreshold;
+    this.filterTimeConstantMicros = filterTimeConstant * 1e6;
+    this.debounceMicros = (long) (debounceTime * 1e6);
+    this.blankingMicros = (long) (blankingTime * 1e6);
+  }
+
+  /**
+   * Starts watching a new move.
+   *
+   * @param timestamp The FPGA time at which the motor was started, in microseconds
+   */
+  public void reset(long timestamp) {
+    filteredCurrent = 0;
+    startTime = timestamp;
+    lastTime = timestamp;
+    stalling = false;
+  }
+
+  /**
+   * Feeds a new sample, and returns whether the motor is stalled.
+   *
+   * @param current The motor current, in amps
+   * @param velocity The motor velocity, in sensor units
+   * @param timestamp The FPGA time of the sample, in microseconds
+   * @return whether the motor is stalled
+   */
+  public boolean update(double current, double velocity, long timestamp) {
+    long dt = timestamp - lastTime;
+    lastTime = timestamp;
+    if (timestamp - startTime < blankingMicros) {
+      filteredCurrent = Math.abs(current);
+      return false;
+    }
+    filteredCurrent += (Math.abs(current) - filteredCurrent) * dt / (filterTimeConstantMicros + dt);
+
+    if (filteredCurrent < currentThreshold || Math.abs(velocity) > velocityThreshold) {
+      stalling = false;
+      return false;
+    }
+    if (!stalling) {
+      stalling = true;
+      stallStartTime = timestamp;
+    }
+    return timestamp - stallStartTime >= debounceMicros;
+  }
+
+  /**
+   * Returns the filtered current, in amps.
+   */
+  public double getFilteredCurrent() {
+    return filteredCurrent;
+  }
+}
@@ -0,0 +1,102 @@
+package overclocked.stl.motorcontrol;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+import com.ctre.phoenix.motorcontrol.can.BaseTalon;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
+
+/**
+ * An adapter that turns the output percentages of a {@link MotorController} into velocity setpoints for a Talon.
+ *
+ * <p>
+ * An output of 1.0 is the given maximum velocity. The Talon runs its Velocity mode PID loop on its own sensor at
+ * 1 kHz, and the feedforward is computed here and sent along as an arbitrary feedforward, so the roboRIO only sends
+ * one setpoint per loop.
+ */
+public class VelocityMotorController implements MotorController {
+  private final BaseTalon talon;
+  private final double maxVelocity;
+  private final double nativeUnitsPerMeter;
+  private final SimpleMotorFeedforward feedforward;
+
+  private double lastSpeed = 0;
+
+  /**
+   * Creates a new VelocityMotorController. The Talon's selected sensor must measure the wheel, and the gains of its
+   * PID slot must be configured separately, with a kF of 0.
+   *
+   * @param talon The Talon to control.
+   * @param pidSlot The PID slot with the velocity gains.
+   * @param maxVelocity The velocity of an output of 1.0, in meters per second.
+   * @param nativeUnitsPerMeter The sensor units per meter travelled by the wheel.
+   * @param feedforward The feedforward, in volts for a velocity in meters per second.
+   */
+  public VelocityMotorController(BaseTalon talon, int pidSlot, double maxVelocity, double nativeUnitsPerMeter,
+      SimpleMotorFeedforward feedforward) {
+    this.talon = talon;
+    this.maxVelocity = maxVelocity;
+    this.nativeUnitsPerMeter = nativeUnitsPerMeter;
+    this.feedforward = feedforward;
+    talon.selectProfileSlot(pidSlot, 0);
+  }
+
+  /**
+   * Sets the velocity as a percentage of the maximum velocity.
+   *
+   * @param speed The output percentage.
+   */
+  @Override
+  public void set(double speed) {
+    lastSpeed = speed;
+    setVelocity(speed * maxVelocity);
+  }
+
+  /**
+   * Sets the velocity.
+   *
+   * @param velocity The velocity, in meters per second.
+   */
+  public void setVelocity(double velocity) {
+    if (OutputGate.isInhibited()) {
+      return;
+    }
+    // Talon velocities are in sensor units per 100 ms.
+    talon.set(ControlMode.Velocity, velocity * nativeUnitsPerMeter / 10,
+        DemandType.ArbitraryFeedForward, feedforward.calculate(velocity) / RobotController.getBatteryVoltage());
+  }
+
+  /**
+   * Returns the velocity of an output of 1.0, in meters per second.
+   */
+  public double getMaxVelocity() {
+    return maxVelocity;
+  }
+
+  @Override
+  public double get() {
+    return lastSpeed;
+  }
+
+  @Override
+  public void setInverted(boolean isInverted) {
+    talon.setInverted(isInverted);
+  }
+
+  @Override
+  public boolean getInverted() {
+    return talon.getInverted();
+  }
+
+  @Override
+  public void disable() {
+    stopMotor();
+  }
+
+  @Override
+  public void stopMotor() {
+    lastSpeed = 0;
+    talon.neutralOutput();
+  }
+}
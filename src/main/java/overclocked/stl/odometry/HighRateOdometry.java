@@ -0,0 +1,108 @@
+
+package overclocked.stl.odometry;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.interfaces.Gyro;
+
+/**
+ * Tracks the pose of a differential drive from its wheel distances and a gyro, on its own {@link Notifier} running
+ * faster than the robot loop.
+ *
+ * <p>
+ * The latest pose is published as an immutable {@link Pose2d} through a volatile field, so reading it never blocks.
+ * Every pose is also added to a {@link PoseHistory}, so that the pose at a past time can be looked up.
+ */
+public class HighRateOdometry implements AutoCloseable {
+  private final Gyro gyro;
+  private final DoubleSupplier leftDistance;
+  private final DoubleSupplier rightDistance;
+  private final DifferentialDriveOdometry odometry;
+  private final PoseHistory history;
+  private final Notifier notifier;
+
+  // The wheel distances at the last reset, since DifferentialDriveOdometry expects them to start from zero.
+  private double leftOffset;
+  private double rightOffset;
+
+  private volatile Pose2d pose = new Pose2d();
+
+  /**
+   * Creates an odometry that starts at the origin. Call {@link #start(double)} to start updating it.
+   *
+   * @param gyro The gyro, counter-clockwise positive through {@link Gyro#getRotation2d()}
+   * @param leftDistance Reads the distance driven by the left wheels, in meters. Called from the odometry thread.
+   * @param rightDistance Reads the distance driven by the right wheels, in meters. Called from the odometry thread.
+   * @param historySize The number of past poses to keep
+   */
+  public HighRateOdometry(Gyro gyro, DoubleSupplier leftDistance, DoubleSupplier rightDistance, int historySize) {
+    this.gyro = gyro;
+    this.leftDistance = leftDistance;
+    this.rightDistance = rightDistance;
+    this.history = new PoseHistory(historySize);
+    this.leftOffset = leftDistance.getAsDouble();
+    this.rightOffset = rightDistance.getAsDouble();
+    this.odometry = new DifferentialDriveOdometry(gyro.getRotation2d());
+    this.notifier = new Notifier(this::update);
+    notifier.setName("Odometry");
+  }
+
+  /**
+   * Starts updating the odometry.
+   *
+   * @param period The time between two updates, in seconds
+   */
+  public void start(double period) {
+    notifier.startPeriodic(period);
+  }
+
+  private synchronized void update() {
+    long timestamp = RobotController.getFPGATime();
+    Pose2d newPose = odometry.update(gyro.getRotation2d(),
+        leftDistance.getAsDouble() - leftOffset,
+        rightDistance.getAsDouble() - rightOffset);
+    history.add(timestamp, newPose);
+    pose = newPose;
+  }
+
+  /**
+   * Resets the odometry to the given pose, and clears the history.
+   *
+   * @param newPose The pose the robot is at now
+   */
+  public synchronized void resetPose(Pose2d newPose) {
+    leftOffset = leftDistance.getAsDouble();
+    rightOffset = rightDistance.getAsDouble();
+    odometry.resetPosition(newPose, gyro.getRotation2d());
+    history.clear();
+    pose = newPose;
+  }
+
+  /**
+   * Returns the latest pose. Never blocks.
+   *
+   * @return the pose
+   */
+  public Pose2d getPose() {
+    return pose;
+  }
+
+  /**
+   * Returns the pose at a past time, interpolated from the history.
+   *
+   * @param timestamp The FPGA time, in microseconds
+   * @return the pose
+   */
+  public Pose2d getPose(long timestamp) {
+    return history.getPose(timestamp);
+  }
+
+  @Override
+  public void close() {
+    notifier.close();
+  }
+}
@@ -0,0 +1,101 @@
+
+package overclocked.stl.odometry;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A fixed-size ring buffer of timestamped poses, for looking up where the robot was at a past time (e.g. when a
+ * camera frame was captured).
+ *
+ * <p>
+ * The poses are stored as primitives in preallocated arrays, so adding one never allocates. Lookups interpolate
+ * between the two samples around the requested time.
+ */
+public class PoseHistory {
+  private final long[] timestamps;
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] headings;
+
+  private int next = 0;
+  private int count = 0;
+
+  /**
+   * Creates an empty history.
+   *
+   * @param capacity The number of poses to keep
+   */
+  public PoseHistory(int capacity) {
+    timestamps = new long[capacity];
+    xs = new double[capacity];
+    ys = new double[capacity];
+    headings = new double[capacity];
+  }
+
+  /**
+   * Adds a pose. Timestamps must be increasing.
+   *
+   * @param timestamp The FPGA time of the pose, in microseconds
+   * @param pose The pose
+   */
+  public synchronized void add(long timestamp, Pose2d pose) {
+    timestamps[next] = timestamp;
+    xs[next] = pose.getX();
+    ys[next] = pose.getY();
+    headings[next] = pose.getRotation().getRadians();
+    next = (next + 1) % timestamps.length;
+    if (count < timestamps.length) {
+      count++;
+    }
+  }
+
+  /**
+   * Removes every pose.
+   */
+  public synchronized void clear() {
+    next = 0;
+    count = 0;
+  }
+
+  /**
+   * Returns the pose at the given time, interpolated between the samples around it. Times before the oldest sample
+   * return the oldest pose, and times after the newest sample return the newest pose.
+   *
+   * @param timestamp The FPGA time, in microseconds
+   * @return the pose, or the origin if the history is empty
+   */
+  public synchronized Pose2d getPose(long timestamp) {
+    if (count == 0) {
+      return new Pose2d();
+    }
+    int oldest = (next - count + timestamps.length) % timestamps.length;
+    if (timestamp <= timestamps[oldest]) {
+      return poseAt(oldest);
+    }
+
+    // Walk back from the newest sample; lookups are almost always for the last few hundred milliseconds.
+    int after = (next - 1 + timestamps.length) % timestamps.length;
+    if (timestamp >= timestamps[after]) {
+      return poseAt(after);
+    }
+    for (int i = 1; i < count; i++) {
+      int before = (after - 1 + timestamps.length) % timestamps.length;
+      if (timestamps[before] <= timestamp) {
+        double t = (double) (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        double heading = headings[before] + MathUtil.angleModulus(headings[after] - headings[before]) * t;
+        return new Pose2d(
+            xs[before] + (xs[after] - xs[before]) * t,
+            ys[before] + (ys[after] - ys[before]) * t,
+            new Rotation2d(heading));
+      }
+      after = before;
+    }
+    return poseAt(oldest);
+  }
+
+  private Pose2d poseAt(int index) {
+    return new Pose2d(xs[index], ys[index], new Rotation2d(headings[index]));
+  }
+}
@@ -0,0 +1,67 @@
+
+package overclocked.stl.pneumatics;
+
+/**
+ * Detects that a pneumatic cylinder has finished moving, from the stored pressure.
+ *
+ * <p>
+ * While a cylinder moves, air flows out of the storage tanks and the stored pressure dips. Once the piston reaches
+ * the end of its travel the flow stops, so the pressure stops falling (and recovers if the compressor is running).
+ * The move is done once the pressure has dipped by at least the dip threshold, and then has either risen by the
+ * recovery threshold from its lowest point or stayed above that lowest point for the settle time.
+ */
+public class ActuationDetector {
+  private final double dipThreshold;
+  private final double recoveryThreshold;
+  private final long settleMicros;
+
+  private double startPressure;
+  private double lowestPressure;
+  private long lowestTime;
+  private boolean dipped;
+
+  /**
+   * Creates a detector.
+   *
+   * @param dipThreshold How far the pressure must drop to count as a move, in psi
+   * @param recoveryThreshold How far the pressure must rise from its lowest point to count as done, in psi
+   * @param settleTime How long the pressure must stop falling to count as done, in seconds
+   */
+  public ActuationDetector(double dipThreshold, double recoveryThreshold, double settleTime) {
+    this.dipThreshold = dipThreshold;
+    this.recoveryThreshold = recoveryThreshold;
+    this.settleMicros = (long) (settleTime * 1e6);
+  }
+
+  /**
+   * Starts watching a move.
+   *
+   * @param pressure The stored pressure right before the solenoid was actuated, in psi
+   * @param timestamp The FPGA time of the pressure reading, in microseconds
+   */
+  public void start(double pressure, long timestamp) {
+    startPressure = pressure;
+    lowestPressure = pressure;
+    lowestTime = timestamp;
+    dipped = false;
+  }
+
+  /**
+   * Feeds a new pressure reading, and returns whether the move is done.
+   *
+   * @param pressure The stored pressure, in psi
+   * @param timestamp The FPGA time of the pressure reading, in microseconds
+   * @return whether the move is done
+   */
+  public boolean update(double pressure, long timestamp) {
+    if (pressure < lowestPressure) {
+      lowestPressure = pressure;
+      lowestTime = timestamp;
+    }
+    if (startPressure - lowestPressure >= dipThreshold) {
+      dipped = true;
+    }
+    return dipped
+        && (pressure - lowestPressure >= recoveryThreshold || timestamp - lowestTime >= settleMicros);
+  }
+}
@@ -0,0 +1,155 @@
+
+package overclocked.stl.power;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Decides when the compressor should run, so that it takes current while the robot is idle rather than while the
+ * mechanisms need it, without ever letting the pressure drop below what the next few actuations need.
+ *
+ * <p>
+ * The air use is modelled as a pressure drop per solenoid actuation. It starts from an estimate, and is refined
+ * from the measured drop of every actuation that happens while the compressor is off. The reserve pressure is the
+ * working pressure plus enough for a number of actuations. Below the floor (the higher of the minimum pressure and
+ * the reserve) the compressor always runs. Above it, it only runs while demand is low, starting once the pressure
+ * has dropped by the restart hysteresis and filling up to the maximum pressure. High demand pauses it for at least
+ * the hold time, so that it does not chatter on and off.
+ */
+public class CompressorScheduler {
+  private static final double MEASUREMENT_SETTLE_TIME = 0.5;
+  private static final double MODEL_SMOOTHING = 0.2;
+
+  private final double workingPressure;
+  private final int reserveActuations;
+  private final double restartHysteresis;
+  private final long demandHoldMicros;
+
+  private double minPressure;
+  private double maxPressure;
+  private double pressurePerActuation;
+
+  private boolean running = false;
+  private long lastHighDemandTime;
+
+  // The actuation whose pressure drop is being measured, if any.
+  private boolean measuring = false;
+  private boolean compressorRanWhileMeasuring = false;
+  private double pressureBeforeActuation;
+  private long actuationTime;
+  private int actuationsWhileMeasuring;
+
+  /**
+   * Creates a scheduler.
+   *
+   * @param minPressure The pressure below which the compressor always runs, in psi
+   * @param maxPressure The pressure to fill up to, in psi
+   * @param workingPressure The pressure that the actuators need to move properly, in psi
+   * @param pressurePerActuation The initial estimate of the pressure used by one actuation, in psi
+   * @param reserveActuations How many actuations to always keep enough pressure for
+   * @param restartHysteresis How far the pressure must drop below the maximum before an idle run starts, in psi
+   * @param demandHoldTime How long to stay paused after the last sign of high demand, in seconds
+   */
+  public CompressorScheduler(double minPressure, double maxPressure, double workingPressure,
+      double pressurePerActuation, int reserveActuations, double restartHysteresis, double demandHoldTime) {
+    this.minPressure = minPressure;
+    this.maxPressure = maxPressure;
+    this.workingPressure = workingPressure;
+    this.pressurePerActuation = pressurePerActuation;
+    this.reserveActuations = reserveActuations;
+    this.restartHysteresis = restartHysteresis;
+    this.demandHoldMicros = (long) (demandHoldTime * 1e6);
+    this.lastHighDemandTime = -demandHoldMicros;
+  }
+
+  /**
+   * Sets the pressure band.
+   *
+   * @param minPressure The pressure below which the compressor always runs, in psi
+   * @param maxPressure The pressure to fill up to, in psi
+   */
+  public void setPressureRange(double minPressure, double maxPressure) {
+    this.minPressure = minPressure;
+    this.maxPressure = maxPressure;
+  }
+
+  /**
+   * Records that a solenoid was actuated.
+   *
+   * @param pressure The stored pressure right before the actuation, in psi
+   */
+  public void recordActuation(double pressure) {
+    if (!measuring) {
+      measuring = true;
+      compressorRanWhileMeasuring = false;
+      pressureBeforeActuation = pressure;
+      actuationsWhileMeasuring = 0;
+    }
+    actuationsWhileMeasuring++;
+    actuationTime = RobotController.getFPGATime();
+  }
+
+  /**
+   * Decides whether the compressor should run now. Should be called once per loop.
+   *
+   * @param pressure The stored pressure, in psi
+   * @param compressorRunning Whether the compressor is drawing current right now
+   * @param highDemand Whether the mechanisms need the current right now
+   * @return whether the compressor should run
+   */
+  public boolean update(double pressure, boolean compressorRunning, boolean highDemand) {
+    long now = RobotController.getFPGATime();
+    updateModel(pressure, compressorRunning, now);
+
+    if (highDemand) {
+      lastHighDemandTime = now;
+    }
+    boolean paused = now - lastHighDemandTime < demandHoldMicros;
+
+    if (pressure >= maxPressure) {
+      running = false;
+    } else if (pressure < getFloorPressure()) {
+      running = true;
+    } else if (paused) {
+      running = false;
+    } else if (pressure < maxPressure - restartHysteresis) {
+      running = true;
+    }
+    return running;
+  }
+
+  private void updateModel(double pressure, boolean compressorRunning, long now) {
+    if (!measuring) {
+      return;
+    }
+    compressorRanWhileMeasuring |= compressorRunning;
+    if (now - actuationTime < MEASUREMENT_SETTLE_TIME * 1e6) {
+      return;
+    }
+    measuring = false;
+    double drop = (pressureBeforeActuation - pressure) / actuationsWhileMeasuring;
+    if (!compressorRanWhileMeasuring && drop > 0) {
+      pressurePerActuation += MODEL_SMOOTHING * (drop - pressurePerActuation);
+    }
+  }
+
+  /**
+   * Returns the pressure that the next reserved actuations need, in psi.
+   */
+  public double getReservePressure() {
+    return workingPressure + reserveActuations * pressurePerActuation;
+  }
+
+  /**
+   * Returns the pressure below which the compressor always runs, in psi.
+   */
+  public double getFloorPressure() {
+    return Math.max(minPressure, getReservePressure());
+  }
+
+  /**
+   * Returns the current estimate of the pressure used by one actuation, in psi.
+   */
+  public double getPressurePerActuation() {
+    return pressurePerActuation;
+  }
+}
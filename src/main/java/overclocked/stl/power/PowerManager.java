@@ -0,0 +1,163 @@
+
+package overclocked.stl.power;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.RobotController;
+import overclocked.stl.telemetry.TelemetryRegistry;
+import overclocked.stl.telemetry.TelemetryRegistry.DoubleEntry;
+
+/**
+ * Keeps the whole robot's current draw under what the battery can supply without browning out, by scaling down the
+ * outputs of the lowest priority loads first.
+ *
+ * <p>
+ * The battery is modelled as an open-circuit voltage behind a fixed resistance. Every loop the open-circuit voltage
+ * is estimated from the measured battery voltage and total current, which gives the current budget that keeps the
+ * battery above the minimum voltage. The current of everything that is not a load (the roboRIO, the radio and any
+ * other unmanaged channel) is measured and taken off the budget first. Each load predicts the current it would draw
+ * at its commanded output (never less than its PDH channels measure), and the budget is handed out in priority
+ * order: a load gets its whole prediction if it fits, and is scaled down to what is left otherwise. Scales drop
+ * immediately, but only recover at a limited rate, so that the loads do not oscillate around the budget.
+ */
+public final class PowerManager {
+  private final PowerDistribution pdh;
+  private final double minimumVoltage;
+  private final double batteryResistance;
+  private final double scaleRecoveryRate;
+  private final List<Load> loads = new ArrayList<>();
+
+  private final DoubleEntry budgetEntry;
+  private final DoubleEntry predictedEntry;
+  private final DoubleEntry unmanagedEntry;
+  private long lastUpdateTime = RobotController.getFPGATime();
+  private boolean limiting = false;
+
+  /**
+   * Creates a power manager without any loads.
+   *
+   * @param pdh The power distribution hub that the loads are connected to
+   * @param minimumVoltage The battery voltage to stay above, i.e. the brownout voltage plus a margin
+   * @param batteryResistance The resistance of the battery and main wiring, in ohms
+   * @param scaleRecoveryRate How fast a scale may increase again, per second
+   */
+  public PowerManager(PowerDistribution pdh, double minimumVoltage, double batteryResistance,
+      double scaleRecoveryRate) {
+    this.pdh = pdh;
+    this.minimumVoltage = minimumVoltage;
+    this.batteryResistance = batteryResistance;
+    this.scaleRecoveryRate = scaleRecoveryRate;
+    TelemetryRegistry telemetry = TelemetryRegistry.getInstance();
+    budgetEntry = telemetry.addDouble("Power/Budget (A)", 5);
+    predictedEntry = telemetry.addDouble("Power/Predicted (A)", 5);
+    unmanagedEntry = telemetry.addDouble("Power/Unmanaged (A)", 5);
+  }
+
+  /**
+   * Adds a load. Loads are served in the order they are added, so the most important load must be added first.
+   *
+   * @param name The name that the load's scale is published under
+   * @param pdhChannels The PDH channels that the load's motors are connected to
+   * @param predictedCurrent Returns the current the load would draw at its commanded output, in amps
+   * @param setScale Scales the load's output, from 0 (off) to 1 (unchanged)
+   */
+  public void addLoad(String name, int[] pdhChannels, DoubleSupplier predictedCurrent, DoubleConsumer setScale) {
+    loads.add(new Load(name, pdhChannels.clone(), predictedCurrent, setScale));
+  }
+
+  /**
+   * Recomputes the budget and the scale of every load. Should be called once per loop, after the commands have set
+   * their outputs.
+   */
+  public void update() {
+    long now = RobotController.getFPGATime();
+    double maxScaleIncrease = scaleRecoveryRate * (now - lastUpdateTime) * 1e-6;
+    lastUpdateTime = now;
+
+    double batteryVoltage = RobotController.getBatteryVoltage();
+    double totalCurrent = pdh.getTotalCurrent();
+    double openCircuitVoltage = batteryVoltage + batteryResistance * totalCurrent;
+    double budget = Math.max(0, (openCircuitVoltage - minimumVoltage) / batteryResistance);
+    budgetEntry.set(budget);
+
+    double managedCurrent = 0;
+    for (int i = 0; i < loads.size(); i++) {
+      managedCurrent += loads.get(i).measure(pdh);
+    }
+    double unmanagedCurrent = Math.max(0, totalCurrent - managedCurrent);
+    unmanagedEntry.set(unmanagedCurrent);
+
+    double remaining = budget - unmanagedCurrent;
+    double predictedTotal = 0;
+    limiting = false;
+    for (int i = 0; i < loads.size(); i++) {
+      Load load = loads.get(i);
+      double predicted = load.predict();
+      predictedTotal += predicted;
+
+      double target = predicted <= remaining ? 1.0 : Math.max(0, remaining) / predicted;
+      double scale = Math.min(target, load.scale + maxScaleIncrease);
+      load.apply(scale);
+      remaining -= predicted * scale;
+      limiting |= scale < 1.0;
+    }
+    predictedEntry.set(predictedTotal);
+  }
+
+  /**
+   * Returns whether any load was scaled down by the last update, i.e. whether the robot is drawing all the current
+   * the battery can supply.
+   */
+  public boolean isLimiting() {
+    return limiting;
+  }
+
+  /**
+   * One subsystem's share of the budget.
+   */
+  private static final class Load {
+    private final int[] pdhChannels;
+    private final DoubleSupplier predictedCurrent;
+    private final DoubleConsumer setScale;
+    private final DoubleEntry scaleEntry;
+    private double scale = 1.0;
+    private double measured;
+
+    private Load(String name, int[] pdhChannels, DoubleSupplier predictedCurrent, DoubleConsumer setScale) {
+      this.pdhChannels = pdhChannels;
+      this.predictedCurrent = predictedCurrent;
+      this.setScale = setScale;
+      this.scaleEntry = TelemetryRegistry.getInstance().addDouble("Power/" + name + " Scale", 5);
+    }
+
+    /**
+     * Reads and returns the current the load draws now, from its PDH channels.
+     */
+    private double measure(PowerDistribution pdh) {
+      measured = 0;
+      for (int channel : pdhChannels) {
+        measured += pdh.getCurrent(channel);
+      }
+      return measured;
+    }
+
+    /**
+     * Returns the current the load would draw at its commanded output, but at least what it drew when last measured.
+     */
+    private double predict() {
+      return Math.max(measured, predictedCurrent.getAsDouble());
+    }
+
+    private void apply(double newScale) {
+      if (newScale != scale) {
+        scale = newScale;
+        setScale.accept(newScale);
+      }
+      scaleEntry.set(newScale);
+    }
+  }
+}
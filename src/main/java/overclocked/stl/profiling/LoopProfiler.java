@@ -0,0 +1,187 @@
+
+package overclocked.stl.profiling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import overclocked.stl.telemetry.TelemetryRegistry;
+import overclocked.stl.telemetry.TelemetryRegistry.DoubleEntry;
+
+/**
+ * Measures how the robot loop is spent, broken down by subsystem periodic() and command execute() calls.
+ *
+ * <p>
+ * Every sample is an FPGA timestamp difference in microseconds, stored in a preallocated ring buffer per section,
+ * so recording a sample never allocates. Every {@link #PUBLISH_PERIOD_LOOPS} loops the p50, p99 and max of each
+ * section are published through the {@link TelemetryRegistry} under "Loop Profile/".
+ *
+ * <p>
+ * Subsystems are timed by extending {@link ProfiledSubsystemBase}. Commands are timed through
+ * {@link CommandScheduler#onCommandExecute}, which only reports when an execute() finished, so a command's sample is
+ * the time since the previous mark. That includes the isFinished() of the previous command and, for the first
+ * command in a loop, the polling of button bindings. Commands are grouped by name, so that commands created on every
+ * use (e.g. by a button binding) share one section instead of adding one each time.
+ */
+public final class LoopProfiler {
+  private static final int SAMPLE_WINDOW = 256;
+  private static final int PUBLISH_PERIOD_LOOPS = 50;
+
+  private static LoopProfiler instance;
+
+  private final List<Section> sections = new ArrayList<>();
+  private final Map<String, Section> commandSections = new HashMap<>();
+  private final long[] sortBuffer = new long[SAMPLE_WINDOW];
+  private final Section loopSection;
+  private final DoubleEntry firstEnabledLoopEntry;
+
+  private long loopStartTime;
+  private long lastMarkTime;
+  private int loopsSincePublish = 0;
+  private long enabledTime;
+  private boolean firstEnabledLoopPending = false;
+
+  /**
+   * Returns the LoopProfiler instance, creating it (and hooking it into the {@link CommandScheduler}) if necessary.
+   *
+   * @return the instance
+   */
+  public static synchronized LoopProfiler getInstance() {
+    if (instance == null) {
+      instance = new LoopProfiler();
+    }
+    return instance;
+  }
+
+  private LoopProfiler() {
+    loopSection = addSection("robotPeriodic()");
+    firstEnabledLoopEntry = TelemetryRegistry.getInstance().addDouble("Loop Profile/First enabled loop (us)");
+    CommandScheduler.getInstance().onCommandExecute(this::markCommandExecuted);
+  }
+
+  /**
+   * Registers a new named section. This allocates the section's ring buffer, so it should be done once at startup.
+   *
+   * @param name The name that the section is published under
+   * @return A handle to pass to {@link #record(Section, long)}
+   */
+  public Section addSection(String name) {
+    Section section = new Section(name);
+    sections.add(section);
+    return section;
+  }
+
+  /**
+   * Marks the start of a robot loop. Must be called at the top of robotPeriodic().
+   */
+  public void startLoop() {
+    loopStartTime = RobotController.getFPGATime();
+    lastMarkTime = loopStartTime;
+  }
+
+  /**
+   * Marks that the robot was just enabled. Must be called at the top of autonomousInit() and teleopInit(). The time
+   * from there until the end of that first loop (including the mode's init() and periodic()) is published as
+   * "Loop Profile/First enabled loop (us)".
+   */
+  public void markEnabled() {
+    enabledTime = RobotController.getFPGATime();
+    firstEnabledLoopPending = true;
+  }
+
+  /**
+   * Marks the end of a robot loop, and publishes the statistics if it is time to. Must be called right after
+   * {@link CommandScheduler#run()} in robotPeriodic().
+   */
+  public void endLoop() {
+    long now = RobotController.getFPGATime();
+    loopSection.record(now - loopStartTime);
+    if (firstEnabledLoopPending) {
+      firstEnabledLoopPending = false;
+      firstEnabledLoopEntry.set(now - enabledTime);
+    }
+
+    if (++loopsSincePublish >= PUBLISH_PERIOD_LOOPS) {
+      loopsSincePublish = 0;
+      publish();
+    }
+  }
+
+  /**
+   * Returns the current FPGA time in microseconds. Used to mark the start of a section.
+   *
+   * @return the FPGA time in microseconds
+   */
+  public long mark() {
+    return RobotController.getFPGATime();
+  }
+
+  /**
+   * Records a sample for the given section, from the given start time until now.
+   *
+   * @param section The section to record in
+   * @param startTime The start time from {@link #mark()}
+   */
+  public void record(Section section, long startTime) {
+    long now = RobotController.getFPGATime();
+    section.record(now - startTime);
+    lastMarkTime = now;
+  }
+
+  private void markCommandExecuted(Command command) {
+    String name = command.getName();
+    Section section = commandSections.get(name);
+    if (section == null) {
+      section = addSection(name + ".execute()");
+      commandSections.put(name, section);
+    }
+    record(section, lastMarkTime);
+  }
+
+  private void publish() {
+    for (int i = 0; i < sections.size(); i++) {
+      Section section = sections.get(i);
+      int count = section.count;
+      if (count == 0) {
+        continue;
+      }
+      System.arraycopy(section.samples, 0, sortBuffer, 0, count);
+      Arrays.sort(sortBuffer, 0, count);
+      section.p50.set(sortBuffer[(count - 1) / 2]);
+      section.p99.set(sortBuffer[(count - 1) * 99 / 100]);
+      section.max.set(sortBuffer[count - 1]);
+    }
+  }
+
+  /**
+   * A named ring buffer of loop time samples, in microseconds.
+   */
+  public static final class Section {
+    private final long[] samples = new long[SAMPLE_WINDOW];
+    private final DoubleEntry p50;
+    private final DoubleEntry p99;
+    private final DoubleEntry max;
+    private int next = 0;
+    private int count = 0;
+
+    private Section(String name) {
+      TelemetryRegistry telemetry = TelemetryRegistry.getInstance();
+      p50 = telemetry.addDouble("Loop Profile/" + name + "/p50 (us)");
+      p99 = telemetry.addDouble("Loop Profile/" + name + "/p99 (us)");
+      max = telemetry.addDouble("Loop Profile/" + name + "/max (us)");
+    }
+
+    private void record(long sample) {
+      samples[next] = sample;
+      next = (next + 1) % SAMPLE_WINDOW;
+      if (count < SAMPLE_WINDOW) {
+        count++;
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+
+package overclocked.stl.profiling;
+
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+/**
+ * A {@link SubsystemBase} whose periodic() is timed by the {@link LoopProfiler}.
+ *
+ * <p>
+ * Subclasses put their periodic work in {@link #profiledPeriodic()} instead of overriding periodic().
+ */
+public abstract class ProfiledSubsystemBase extends SubsystemBase {
+  private final LoopProfiler profiler = LoopProfiler.getInstance();
+  private final LoopProfiler.Section section = profiler.addSection(getClass().getSimpleName() + ".periodic()");
+
+  @Override
+  public final void periodic() {
+    long start = profiler.mark();
+    profiledPeriodic();
+    profiler.record(section, start);
+  }
+
+  /**
+   * This method is called periodically by the {@link edu.wpi.first.wpilibj2.command.CommandScheduler}, and is timed
+   * by the {@link LoopProfiler}. Useful for updating subsystem-specific state that you don't want to offload to a
+   * Command.
+   */
+  protected void profiledPeriodic() {}
+}
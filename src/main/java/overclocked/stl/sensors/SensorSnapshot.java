@@ -0,0 +1,35 @@
+
+package overclocked.stl.sensors;
+
+/**
+ * A flat set of sensor values that is read from the devices once per loop by the {@link SensorSnapshotManager}.
+ *
+ * <p>
+ * Subclasses hold the values in primitive fields and read them in {@link #read()}. Everything that runs later in the
+ * same loop reads the cached values, so each device is only queried once and every consumer sees the same data.
+ */
+public abstract class SensorSnapshot {
+  private long timestamp;
+
+  /**
+   * Reads the devices and stores the values with the given timestamp.
+   *
+   * @param timestamp The FPGA time, in microseconds, at which the values were read
+   */
+  public final void update(long timestamp) {
+    read();
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Reads every value of this snapshot from its devices.
+   */
+  protected abstract void read();
+
+  /**
+   * Returns the FPGA time, in microseconds, at which the values were last read.
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+}
@@ -0,0 +1,51 @@
+
+package overclocked.stl.sensors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Updates every registered {@link SensorSnapshot} once per loop, before the command scheduler runs.
+ */
+public final class SensorSnapshotManager {
+  private static SensorSnapshotManager instance;
+
+  private final List<SensorSnapshot> snapshots = new ArrayList<>();
+
+  /**
+   * Returns the SensorSnapshotManager instance, creating it if necessary.
+   *
+   * @return the instance
+   */
+  public static synchronized SensorSnapshotManager getInstance() {
+    if (instance == null) {
+      instance = new SensorSnapshotManager();
+    }
+    return instance;
+  }
+
+  private SensorSnapshotManager() {}
+
+  /**
+   * Registers a snapshot to be updated every loop, and reads it once right away so that it is valid before the
+   * first loop. Must be called after the snapshot's devices have been created.
+   *
+   * @param snapshot The snapshot to register
+   */
+  public void register(SensorSnapshot snapshot) {
+    snapshot.update(RobotController.getFPGATime());
+    snapshots.add(snapshot);
+  }
+
+  /**
+   * Updates every registered snapshot with a common timestamp. Should be called once at the top of every loop.
+   */
+  public void updateAll() {
+    long timestamp = RobotController.getFPGATime();
+    for (int i = 0; i < snapshots.size(); i++) {
+      snapshots.get(i).update(timestamp);
+    }
+  }
+}
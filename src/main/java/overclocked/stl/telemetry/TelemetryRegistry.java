@@ -0,0 +1,232 @@
+
+package overclocked.stl.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * A registry of typed SmartDashboard entries that only publish when their value changes.
+ *
+ * <p>
+ * Entries are created once (usually in a subsystem's constructor), which looks up the underlying
+ * {@link NetworkTableEntry} a single time. Setting an entry only stores the value; {@link #flush()} then publishes
+ * every entry whose value changed and whose publish period has elapsed, in one pass per loop. Neither setting nor
+ * flushing allocates.
+ */
+public final class TelemetryRegistry {
+  private static TelemetryRegistry instance;
+
+  private final List<Entry> entries = new ArrayList<>();
+
+  /**
+   * Returns the TelemetryRegistry instance, creating it if necessary.
+   *
+   * @return the instance
+   */
+  public static synchronized TelemetryRegistry getInstance() {
+    if (instance == null) {
+      instance = new TelemetryRegistry();
+    }
+    return instance;
+  }
+
+  private TelemetryRegistry() {}
+
+  /**
+   * Creates a number entry that is published at most every loop.
+   *
+   * @param key The SmartDashboard key
+   * @return The new entry
+   */
+  public DoubleEntry addDouble(String key) {
+    return addDouble(key, 1);
+  }
+
+  /**
+   * Creates a number entry that is published at most once every publishPeriodLoops loops.
+   *
+   * @param key The SmartDashboard key
+   * @param publishPeriodLoops The minimum number of loops between publishes
+   * @return The new entry
+   */
+  public DoubleEntry addDouble(String key, int publishPeriodLoops) {
+    return add(new DoubleEntry(SmartDashboard.getEntry(key), publishPeriodLoops));
+  }
+
+  /**
+   * Creates a boolean entry that is published at most every loop.
+   *
+   * @param key The SmartDashboard key
+   * @return The new entry
+   */
+  public BooleanEntry addBoolean(String key) {
+    return addBoolean(key, 1);
+  }
+
+  /**
+   * Creates a boolean entry that is published at most once every publishPeriodLoops loops.
+   *
+   * @param key The SmartDashboard key
+   * @param publishPeriodLoops The minimum number of loops between publishes
+   * @return The new entry
+   */
+  public BooleanEntry addBoolean(String key, int publishPeriodLoops) {
+    return add(new BooleanEntry(SmartDashboard.getEntry(key), publishPeriodLoops));
+  }
+
+  /**
+   * Creates a string entry that is published at most every loop. Values are compared by reference, so this is meant
+   * for constant strings such as enum names.
+   *
+   * @param key The SmartDashboard key
+   * @return The new entry
+   */
+  public StringEntry addString(String key) {
+    return add(new StringEntry(SmartDashboard.getEntry(key), 1));
+  }
+
+  private <T extends Entry> T add(T entry) {
+    entries.add(entry);
+    return entry;
+  }
+
+  /**
+   * Publishes every entry that has changed and is due. Should be called once per loop.
+   */
+  public void flush() {
+    for (int i = 0; i < entries.size(); i++) {
+      entries.get(i).flush();
+    }
+  }
+
+  /**
+   * The common part of every entry: the NetworkTables handle and the publish rate.
+   */
+  private abstract static class Entry {
+    protected final NetworkTableEntry entry;
+    private final int publishPeriodLoops;
+    private int loopsSincePublish;
+    private boolean published = false;
+
+    private Entry(NetworkTableEntry entry, int publishPeriodLoops) {
+      this.entry = entry;
+      this.publishPeriodLoops = publishPeriodLoops;
+      this.loopsSincePublish = publishPeriodLoops;
+    }
+
+    private void flush() {
+      if (loopsSincePublish < publishPeriodLoops) {
+        loopsSincePublish++;
+        return;
+      }
+      if (!published || isChanged()) {
+        publish();
+        published = true;
+        loopsSincePublish = 1;
+      }
+    }
+
+    protected abstract boolean isChanged();
+
+    protected abstract void publish();
+  }
+
+  /**
+   * A number entry.
+   */
+  public static final class DoubleEntry extends Entry {
+    private double value;
+    private double publishedValue;
+
+    private DoubleEntry(NetworkTableEntry entry, int publishPeriodLoops) {
+      super(entry, publishPeriodLoops);
+    }
+
+    /**
+     * Sets the value to publish on the next flush.
+     *
+     * @param value The new value
+     */
+    public void set(double value) {
+      this.value = value;
+    }
+
+    @Override
+    protected boolean isChanged() {
+      return value != publishedValue;
+    }
+
+    @Override
+    protected void publish() {
+      entry.setDouble(value);
+      publishedValue = value;
+    }
+  }
+
+  /**
+   * A boolean entry.
+   */
+  public static final class BooleanEntry extends Entry {
+    private boolean value;
+    private boolean publishedValue;
+
+    private BooleanEntry(NetworkTableEntry entry, int publishPeriodLoops) {
+      super(entry, publishPeriodLoops);
+    }
+
+    /**
+     * Sets the value to publish on the next flush.
+     *
+     * @param value The new value
+     */
+    public void set(boolean value) {
+      this.value = value;
+    }
+
+    @Override
+    protected boolean isChanged() {
+      return value != publishedValue;
+    }
+
+    @Override
+    protected void publish() {
+      entry.setBoolean(value);
+      publishedValue = value;
+    }
+  }
+
+  /**
+   * A string entry.
+   */
+  public static final class StringEntry extends Entry {
+    private String value = "";
+    private String publishedValue;
+
+    private StringEntry(NetworkTableEntry entry, int publishPeriodLoops) {
+      super(entry, publishPeriodLoops);
+    }
+
+    /**
+     * Sets the value to publish on the next flush.
+     *
+     * @param value The new value
+     */
+    public void set(String value) {
+      this.value = value;
+    }
+
+    @Override
+    protected boolean isChanged() {
+      return value != publishedValue;
+    }
+
+    @Override
+    protected void publish() {
+      entry.setString(value);
+      publishedValue = value;
+    }
+  }
+}
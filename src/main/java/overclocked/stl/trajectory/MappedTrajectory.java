@@ -0,0 +1,149 @@
+
+package overclocked.stl.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A trajectory written by {@link TrajectoryWriter}, memory-mapped read-only.
+ *
+ * <p>
+ * Loading only maps the file and checks its header; the samples are read straight out of the mapping when the
+ * trajectory is sampled, so there is nothing to parse and nothing is allocated per sample. A MappedTrajectory keeps
+ * scratch samples for interpolating, so it must only be sampled from one thread.
+ */
+public final class MappedTrajectory {
+  private final String name;
+  private final MappedByteBuffer buffer;
+  private final int sampleCount;
+  private final double totalTime;
+
+  private final TrajectorySample start = new TrajectorySample();
+  private final TrajectorySample end = new TrajectorySample();
+
+  private MappedTrajectory(String name, MappedByteBuffer buffer) {
+    this.name = name;
+    this.buffer = buffer;
+    this.sampleCount = buffer.getInt(TrajectoryFormat.SAMPLE_COUNT_OFFSET);
+    this.totalTime = buffer.getDouble(TrajectoryFormat.TOTAL_TIME_OFFSET);
+  }
+
+  /**
+   * Maps the given trajectory file.
+   *
+   * @param file The file, as written by {@link TrajectoryWriter}
+   * @return the trajectory
+   * @throws IOException if the file cannot be read, or is not a trajectory
+   */
+  public static MappedTrajectory load(Path file) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    if (buffer.limit() < TrajectoryFormat.HEADER_SIZE
+        || buffer.getInt(TrajectoryFormat.MAGIC_OFFSET) != TrajectoryFormat.MAGIC) {
+      throw new IOException(file + " is not a trajectory");
+    }
+    int version = buffer.getInt(TrajectoryFormat.VERSION_OFFSET);
+    if (version != TrajectoryFormat.VERSION) {
+      throw new IOException(file + " has version " + version + ", expected " + TrajectoryFormat.VERSION);
+    }
+    int sampleCount = buffer.getInt(TrajectoryFormat.SAMPLE_COUNT_OFFSET);
+    if (sampleCount < 1
+        || buffer.limit() < TrajectoryFormat.HEADER_SIZE + (long) sampleCount * TrajectoryFormat.SAMPLE_SIZE) {
+      throw new IOException(file + " is truncated");
+    }
+
+    String fileName = file.getFileName().toString();
+    int extension = fileName.lastIndexOf('.');
+    return new MappedTrajectory(extension > 0 ? fileName.substring(0, extension) : fileName, buffer);
+  }
+
+  /**
+   * Returns the name of the trajectory, which is its file name without the extension.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the time it takes to follow the whole trajectory, in seconds.
+   */
+  public double getTotalTime() {
+    return totalTime;
+  }
+
+  /**
+   * Returns the pose at the start of the trajectory.
+   */
+  public Pose2d getInitialPose() {
+    read(0, start);
+    return new Pose2d(start.x, start.y, new Rotation2d(start.heading));
+  }
+
+  /**
+   * Fills in the sample at the given time, interpolated between the two samples around it. Times outside of the
+   * trajectory are clamped to its first or last sample.
+   *
+   * @param time The time since the start of the trajectory, in seconds
+   * @param out The sample to fill in
+   */
+  public void sample(double time, TrajectorySample out) {
+    if (time <= timeAt(0)) {
+      read(0, out);
+      return;
+    }
+    if (time >= timeAt(sampleCount - 1)) {
+      read(sampleCount - 1, out);
+      return;
+    }
+
+    // Find the first sample at or after the given time.
+    int low = 1;
+    int high = sampleCount - 1;
+    while (low != high) {
+      int mid = (low + high) >>> 1;
+      if (timeAt(mid) < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    read(low - 1, start);
+    read(low, end);
+    if (Math.abs(end.time - start.time) < 1e-9) {
+      read(low, out);
+      return;
+    }
+    out.interpolate(start, end, (time - start.time) / (end.time - start.time));
+  }
+
+  private double timeAt(int index) {
+    return buffer.getDouble(offsetOf(index) + TrajectoryFormat.TIME);
+  }
+
+  private void read(int index, TrajectorySample out) {
+    int offset = offsetOf(index);
+    out.time = buffer.getDouble(offset + TrajectoryFormat.TIME);
+    out.velocity = buffer.getDouble(offset + TrajectoryFormat.VELOCITY);
+    out.acceleration = buffer.getDouble(offset + TrajectoryFormat.ACCELERATION);
+    out.x = buffer.getDouble(offset + TrajectoryFormat.X);
+    out.y = buffer.getDouble(offset + TrajectoryFormat.Y);
+    out.heading = buffer.getDouble(offset + TrajectoryFormat.HEADING);
+    out.curvature = buffer.getDouble(offset + TrajectoryFormat.CURVATURE);
+  }
+
+  private static int offsetOf(int index) {
+    return TrajectoryFormat.HEADER_SIZE + index * TrajectoryFormat.SAMPLE_SIZE;
+  }
+}
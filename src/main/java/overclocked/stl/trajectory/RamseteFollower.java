@@ -0,0 +1,79 @@
+
+package overclocked.stl.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * Computes the wheel speeds that make a differential drive follow a trajectory, with the same nonlinear feedback
+ * law as WPILib's RamseteController. Works on {@link TrajectorySample}s and primitives, so it does not allocate.
+ */
+public final class RamseteFollower {
+  private final double b;
+  private final double zeta;
+  private final double trackWidth;
+
+  private double leftVelocity;
+  private double rightVelocity;
+
+  /**
+   * Creates a follower.
+   *
+   * @param b The convergence gain, in rad^2/m^2. Larger values converge more aggressively. 2.0 is a good default.
+   * @param zeta The damping gain, in 1/rad, between 0 and 1. Larger values damp more. 0.7 is a good default.
+   * @param trackWidth The distance between the left and right wheels, in meters
+   */
+  public RamseteFollower(double b, double zeta, double trackWidth) {
+    this.b = b;
+    this.zeta = zeta;
+    this.trackWidth = trackWidth;
+  }
+
+  /**
+   * Computes the wheel speeds that drive the robot from its current pose towards the reference, readable through
+   * {@link #getLeftVelocity()} and {@link #getRightVelocity()}.
+   *
+   * @param pose The current pose of the robot
+   * @param reference The sample of the trajectory to follow
+   */
+  public void calculate(Pose2d pose, TrajectorySample reference) {
+    double heading = pose.getRotation().getRadians();
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+
+    // The error, in the robot's frame.
+    double dx = reference.getX() - pose.getX();
+    double dy = reference.getY() - pose.getY();
+    double errorX = dx * cos + dy * sin;
+    double errorY = -dx * sin + dy * cos;
+    double errorTheta = MathUtil.angleModulus(reference.getHeading() - heading);
+
+    double vRef = reference.getVelocity();
+    double omegaRef = vRef * reference.getCurvature();
+    double k = 2.0 * zeta * Math.sqrt(omegaRef * omegaRef + b * vRef * vRef);
+
+    double v = vRef * Math.cos(errorTheta) + k * errorX;
+    double omega = omegaRef + k * errorTheta + b * vRef * sinc(errorTheta) * errorY;
+
+    leftVelocity = v - omega * trackWidth / 2;
+    rightVelocity = v + omega * trackWidth / 2;
+  }
+
+  /**
+   * Returns the left wheel speed from the last {@link #calculate}, in meters per second.
+   */
+  public double getLeftVelocity() {
+    return leftVelocity;
+  }
+
+  /**
+   * Returns the right wheel speed from the last {@link #calculate}, in meters per second.
+   */
+  public double getRightVelocity() {
+    return rightVelocity;
+  }
+
+  private static double sinc(double x) {
+    return Math.abs(x) < 1e-9 ? 1.0 - x * x / 6.0 : Math.sin(x) / x;
+  }
+}
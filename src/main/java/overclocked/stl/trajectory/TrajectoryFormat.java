@@ -0,0 +1,38 @@
+
+package overclocked.stl.trajectory;
+
+/**
+ * The layout of the files written by {@link TrajectoryWriter}. Every value is little-endian.
+ *
+ * <pre>
+ * offset  size  field
+ *      0     4  magic, "OCTJ"
+ *      4     4  version
+ *      8     4  sample count
+ *     12     4  (reserved)
+ *     16     8  total time, in seconds
+ *     24     -  samples, each 7 doubles: time (s), velocity (m/s), acceleration (m/s^2), x (m), y (m),
+ *               heading (rad) and curvature (rad/m)
+ * </pre>
+ */
+final class TrajectoryFormat {
+  static final int MAGIC = 0x4A54434F; // "OCTJ" read as little-endian bytes
+  static final int VERSION = 1;
+
+  static final int MAGIC_OFFSET = 0;
+  static final int VERSION_OFFSET = 4;
+  static final int SAMPLE_COUNT_OFFSET = 8;
+  static final int TOTAL_TIME_OFFSET = 16;
+  static final int HEADER_SIZE = 24;
+
+  static final int TIME = 0;
+  static final int VELOCITY = 8;
+  static final int ACCELERATION = 16;
+  static final int X = 24;
+  static final int Y = 32;
+  static final int HEADING = 40;
+  static final int CURVATURE = 48;
+  static final int SAMPLE_SIZE = 56;
+
+  private TrajectoryFormat() {}
+}
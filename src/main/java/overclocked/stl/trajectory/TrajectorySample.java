@@ -0,0 +1,96 @@
+
+package overclocked.stl.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * A mutable point of a {@link MappedTrajectory}, filled in by {@link MappedTrajectory#sample(double, TrajectorySample)}
+ * so that following a trajectory does not allocate.
+ */
+public final class TrajectorySample {
+  double time;
+  double velocity;
+  double acceleration;
+  double x;
+  double y;
+  double heading;
+  double curvature;
+
+  /**
+   * Returns the time of the sample since the start of the trajectory, in seconds.
+   */
+  public double getTime() {
+    return time;
+  }
+
+  /**
+   * Returns the linear velocity, in meters per second.
+   */
+  public double getVelocity() {
+    return velocity;
+  }
+
+  /**
+   * Returns the linear acceleration, in meters per second squared.
+   */
+  public double getAcceleration() {
+    return acceleration;
+  }
+
+  /**
+   * Returns the X coordinate of the pose, in meters.
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Returns the Y coordinate of the pose, in meters.
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Returns the heading of the pose, in radians, counter-clockwise positive.
+   */
+  public double getHeading() {
+    return heading;
+  }
+
+  /**
+   * Returns the curvature, in radians per meter.
+   */
+  public double getCurvature() {
+    return curvature;
+  }
+
+  /**
+   * Sets this sample to the interpolation between two samples, the same way as WPILib's Trajectory.State does: the
+   * velocity is integrated with the start acceleration, and the position is interpolated by distance.
+   */
+  void interpolate(TrajectorySample start, TrajectorySample end, double t) {
+    double deltaT = t * (end.time - start.time);
+    if (deltaT < 0) {
+      interpolate(end, start, 1 - t);
+      return;
+    }
+    boolean reversing = start.velocity < 0 || Math.abs(start.velocity) < 1e-9 && end.velocity < 0;
+    double newVelocity = start.velocity + start.acceleration * deltaT;
+    double newDistance = (start.velocity * deltaT + 0.5 * start.acceleration * deltaT * deltaT) * (reversing ? -1 : 1);
+    double distanceBetween = Math.hypot(end.x - start.x, end.y - start.y);
+    double interpolationFrac = distanceBetween > 1e-9 ? newDistance / distanceBetween : t;
+
+    time = start.time + deltaT;
+    velocity = newVelocity;
+    acceleration = start.acceleration;
+    x = lerp(start.x, end.x, interpolationFrac);
+    y = lerp(start.y, end.y, interpolationFrac);
+    heading = start.heading + MathUtil.angleModulus(end.heading - start.heading) * interpolationFrac;
+    curvature = lerp(start.curvature, end.curvature, t);
+  }
+
+  private static double lerp(double start, double end, double t) {
+    return start + (end - start) * t;
+  }
+}
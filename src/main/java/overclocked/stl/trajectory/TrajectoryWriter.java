@@ -0,0 +1,55 @@
+
+package overclocked.stl.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+
+/**
+ * Writes WPILib {@link Trajectory trajectories} in the binary format that {@link MappedTrajectory} reads. Meant to
+ * run on the development machine, so that the robot never has to generate a trajectory.
+ */
+public final class TrajectoryWriter {
+  private TrajectoryWriter() {}
+
+  /**
+   * Writes the trajectory to the given file, replacing it if it exists.
+   *
+   * @param trajectory The trajectory
+   * @param file The file to write
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Trajectory trajectory, Path file) throws IOException {
+    List<Trajectory.State> states = trajectory.getStates();
+    ByteBuffer buffer = ByteBuffer.allocate(TrajectoryFormat.HEADER_SIZE + states.size() * TrajectoryFormat.SAMPLE_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(TrajectoryFormat.MAGIC_OFFSET, TrajectoryFormat.MAGIC);
+    buffer.putInt(TrajectoryFormat.VERSION_OFFSET, TrajectoryFormat.VERSION);
+    buffer.putInt(TrajectoryFormat.SAMPLE_COUNT_OFFSET, states.size());
+    buffer.putDouble(TrajectoryFormat.TOTAL_TIME_OFFSET, trajectory.getTotalTimeSeconds());
+    buffer.position(TrajectoryFormat.HEADER_SIZE);
+    for (Trajectory.State state : states) {
+      buffer.putDouble(state.timeSeconds);
+      buffer.putDouble(state.velocityMetersPerSecond);
+      buffer.putDouble(state.accelerationMetersPerSecondSq);
+      buffer.putDouble(state.poseMeters.getX());
+      buffer.putDouble(state.poseMeters.getY());
+      buffer.putDouble(state.poseMeters.getRotation().getRadians());
+      buffer.putDouble(state.curvatureRadPerMeter);
+    }
+    buffer.flip();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+}
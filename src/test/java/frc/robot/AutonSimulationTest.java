@@ -0,0 +1,95 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.Constants.AutonConstants;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs the autonomous routines through {@link AutonSimulation} and checks how long they take and where they leave
+ * the robot.
+ */
+public class AutonSimulationTest {
+  // The simulation only sees a routine finish at the end of a loop.
+  private static final double TIME_TOLERANCE = 2 * TimedRobot.kDefaultPeriod;
+  private static final double STOPPED_TOLERANCE_METERS = 0.01;
+  private static final double MINIMUM_DRIVE_METERS = 0.5;
+
+  private static Robot robot;
+
+  @BeforeClass
+  public static void startRobot() throws InterruptedException {
+    robot = AutonSimulation.startRobot(AutonParameters.DEFAULT);
+  }
+
+  @Test
+  public void everyRoutineFinishesWithinAutonomous() throws InterruptedException {
+    for (String name : robot.getRobotContainer().getAutonRoutines().keySet()) {
+      AutonSimulation.Result result = AutonSimulation.runRoutine(robot, name);
+      assertFalse(name + " did not finish", Double.isNaN(result.finishedAt));
+    }
+  }
+
+  @Test
+  public void trajectoryRoutineIsAvailable() {
+    assertTrue("The trajectories have not been generated",
+        robot.getRobotContainer().getAutonRoutines().containsKey("Trajectory Auton"));
+  }
+
+  @Test
+  public void driveAutonDrivesForItsRuntime() throws InterruptedException {
+    AutonSimulation.Result result = AutonSimulation.runRoutine(robot, "Drive Auton");
+    assertEquals(AutonConstants.SIMPLE_AUTON_RUNTIME, result.finishedAt, TIME_TOLERANCE);
+    assertTrue("Drove " + distance(result), distance(result) > MINIMUM_DRIVE_METERS);
+    assertTrue(result.peakLeftOutput > 0 && result.peakRightOutput > 0);
+  }
+
+  @Test
+  public void shootingAutonDoesNotDrive() throws InterruptedException {
+    AutonSimulation.Result result = AutonSimulation.runRoutine(robot, "Shooting Auton");
+    assertEquals(AutonConstants.MEDIUM_AUTON_OUTTAKE_RUNTIME, result.finishedAt, TIME_TOLERANCE);
+    assertEquals(0, distance(result), STOPPED_TOLERANCE_METERS);
+    assertEquals(0, result.peakLeftOutput, 0);
+    assertEquals(0, result.peakRightOutput, 0);
+  }
+
+  @Test
+  public void driveAndShootAutonShootsThenDrives() throws InterruptedException {
+    AutonSimulation.Result result = AutonSimulation.runRoutine(robot, "Drive And Shoot Auton");
+    assertEquals(AutonConstants.MEDIUM_AUTON_OUTTAKE_RUNTIME + AutonConstants.SIMPLE_AUTON_RUNTIME,
+        result.finishedAt, TIME_TOLERANCE);
+    assertTrue("Drove " + distance(result), distance(result) > MINIMUM_DRIVE_METERS);
+  }
+
+  @Test
+  public void driveDistanceAutonCoversItsDistance() throws InterruptedException {
+    AutonSimulation.Result result = AutonSimulation.runRoutine(robot, "Drive Distance Auton");
+    assertFalse("Did not finish", Double.isNaN(result.finishedAt));
+    assertTrue("Drove " + distance(result),
+        distance(result) >= AutonConstants.DRIVE_DISTANCE_METERS - STOPPED_TOLERANCE_METERS);
+  }
+
+  @Test
+  public void doNothingAutonStaysPut() throws InterruptedException {
+    AutonSimulation.Result result = AutonSimulation.runRoutine(robot, "Do Nothing Auton");
+    assertEquals(0, result.finishedAt, 0);
+    assertEquals(0, distance(result), STOPPED_TOLERANCE_METERS);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownRoutineIsRejected() throws InterruptedException {
+    AutonSimulation.runRoutine(robot, "No Such Auton");
+  }
+
+  private static double distance(AutonSimulation.Result result) {
+    return result.pose.getTranslation().getNorm();
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.IntakeConstants;
+import frc.robot.subsystems.Intake;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs the intake's extension and retraction cycles in simulation, and checks when their stages end and when the
+ * rollers may spin. The simulated PH never reports a pressure dip, so a stage without a limit switch can only end on
+ * its timeout; the pressure end condition is covered by the ActuationDetector tests.
+ */
+public class IntakeTest {
+  // Each test creates its own intake, on its own solenoid channels, CAN ID and DIO channel.
+  private static final int CHANNELS_PER_INTAKE = 4;
+  private static final int FIRST_MOTOR_ID = 40;
+  private static final int NOT_FITTED = -1;
+  private static final double SPIN_SPEED = 0.5;
+
+  private static Robot robot;
+  private static int intakesCreated = 0;
+
+  @BeforeClass
+  public static void startRobot() throws InterruptedException {
+    robot = AutonSimulation.startRobot(AutonParameters.DEFAULT);
+    // The scheduler cancels the cycles while the robot is disabled.
+    AutonSimulation.setMode(true, false, false);
+  }
+
+  @Test
+  public void stageWithoutFeedbackEndsOnTimeout() {
+    Intake intake = createIntake(NOT_FITTED);
+    intake.getExtensionCommand().schedule();
+
+    runFor(IntakeConstants.SOLENOID_DELAY_TIME - 2 * TimedRobot.kDefaultPeriod);
+    assertEquals(Intake.State.EXTENDING, intake.getState());
+
+    // The second stage and the end of the cycle take a loop each, and the state is re-read on the next one.
+    runFor(6 * TimedRobot.kDefaultPeriod);
+    assertEquals(Intake.State.EXTENDED, intake.getState());
+  }
+
+  @Test
+  public void limitSwitchEndsStage() {
+    int limitChannel = intakesCreated;
+    Intake intake = createIntake(limitChannel);
+    DIOSim limit = new DIOSim(limitChannel);
+    limit.setValue(true);
+    intake.getExtensionCommand().schedule();
+
+    runFor(5 * TimedRobot.kDefaultPeriod);
+    assertEquals(Intake.State.EXTENDING, intake.getState());
+
+    // Pressed reads low.
+    limit.setValue(false);
+    runFor(4 * TimedRobot.kDefaultPeriod);
+    assertEquals(Intake.State.EXTENDED, intake.getState());
+  }
+
+  @Test
+  public void rollersOnlySpinOnceExtended() {
+    Intake intake = createIntake(NOT_FITTED);
+    intake.setSpinSpeed(SPIN_SPEED);
+    runFor(TimedRobot.kDefaultPeriod);
+    assertFalse("Spinning while " + intake.getState(), intake.canSpin());
+
+    intake.getExtensionCommand().schedule();
+    runFor(TimedRobot.kDefaultPeriod);
+    assertEquals(Intake.State.EXTENDING, intake.getState());
+    assertFalse("Spinning while extending", intake.canSpin());
+
+    runFor(2 * IntakeConstants.SOLENOID_DELAY_TIME);
+    assertEquals(Intake.State.EXTENDED, intake.getState());
+    assertTrue(intake.canSpin());
+  }
+
+  @Test
+  public void retractionInterruptsExtension() {
+    Intake intake = createIntake(NOT_FITTED);
+    Command extension = intake.getExtensionCommand();
+    extension.schedule();
+    runFor(TimedRobot.kDefaultPeriod);
+
+    intake.getRetractionCommand().schedule();
+    assertFalse("The extension was not interrupted", extension.isScheduled());
+    runFor(TimedRobot.kDefaultPeriod);
+    assertEquals(Intake.State.RETRACTING, intake.getState());
+    assertFalse("Spinning while retracting", intake.canSpin());
+
+    runFor(2 * IntakeConstants.SOLENOID_DELAY_TIME);
+    assertEquals(Intake.State.RETRACTED, intake.getState());
+    assertFalse(intake.canSpin());
+  }
+
+  /**
+   * Creates an intake, with a limit switch on the given DIO channel for the top cylinder's extended position.
+   */
+  private static Intake createIntake(int topExtendedLimitChannel) {
+    int firstChannel = intakesCreated * CHANNELS_PER_INTAKE;
+    Intake intake = new Intake(
+        FIRST_MOTOR_ID + intakesCreated,
+        firstChannel,
+        firstChannel + 1,
+        firstChannel + 2,
+        firstChannel + 3,
+        topExtendedLimitChannel,
+        NOT_FITTED,
+        NOT_FITTED,
+        NOT_FITTED);
+    intakesCreated++;
+    return intake;
+  }
+
+  /**
+   * Runs robot loops for the given time, the way {@link TimedRobot} does.
+   */
+  private static void runFor(double seconds) {
+    int loops = (int) Math.round(seconds / TimedRobot.kDefaultPeriod);
+    for (int i = 0; i < loops; i++) {
+      SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+      robot.robotPeriodic();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Constants.IOConstants;
+import frc.robot.Constants.IOConstants.DriverAxes;
+import org.junit.Test;
+
+/**
+ * Checks that a simulated teleop loop, from the joystick axes to the motor outputs, allocates nothing, so that the
+ * garbage collector never has to pause inside a loop.
+ */
+public class TeleopAllocationTest {
+  // Enough loops for the JIT to compile the loop, which removes the allocations that escape analysis can prove
+  // unnecessary.
+  private static final int WARMUP_LOOPS = 20000;
+  private static final int MEASURED_LOOPS = 1000;
+
+  private static final int AXIS_COUNT = 6;
+  private static final int BUTTON_COUNT = 16;
+  private static final double DRIVE_AXIS_VALUE = -0.5;
+
+  private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @Test
+  public void teleopLoopDoesNotAllocate() throws InterruptedException {
+    Robot robot = AutonSimulation.startRobot(AutonParameters.DEFAULT);
+    // The simulated drivetrain is not robot code, and its model allocates every step.
+    robot.getRobotContainer().getDriveBase().setSimulationPaused(true);
+
+    // Joysticks with too few axes or buttons make every read report a warning, which allocates.
+    for (int port : new int[] {IOConstants.DRIVER_JOYSTICK_INDEX, IOConstants.OPERATOR_JOYSTICK_INDEX}) {
+      DriverStationSim.setJoystickAxisCount(port, AXIS_COUNT);
+      DriverStationSim.setJoystickButtonCount(port, BUTTON_COUNT);
+    }
+    DriverStationSim.setJoystickAxis(IOConstants.DRIVER_JOYSTICK_INDEX, DriverAxes.LEFT, DRIVE_AXIS_VALUE);
+    DriverStationSim.setJoystickAxis(IOConstants.DRIVER_JOYSTICK_INDEX, DriverAxes.RIGHT, DRIVE_AXIS_VALUE);
+    AutonSimulation.setMode(true, false, false);
+    awaitDriveAxis();
+    robot.teleopInit();
+
+    for (int i = 0; i < WARMUP_LOOPS; i++) {
+      runTeleopLoop(robot);
+    }
+
+    // Reading the counter may itself allocate, so measure that first and take it off the loops.
+    long threadId = Thread.currentThread().getId();
+    long before = threads.getThreadAllocatedBytes(threadId);
+    long readCost = threads.getThreadAllocatedBytes(threadId) - before;
+
+    before = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURED_LOOPS; i++) {
+      runTeleopLoop(robot);
+    }
+    long allocated = threads.getThreadAllocatedBytes(threadId) - before - readCost;
+
+    assertEquals("Bytes allocated by " + MEASURED_LOOPS + " teleop loops", 0, allocated);
+  }
+
+  /**
+   * Runs one teleop loop the way {@link TimedRobot} does.
+   */
+  private static void runTeleopLoop(Robot robot) {
+    SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+    robot.teleopPeriodic();
+    robot.robotPeriodic();
+  }
+
+  /**
+   * Waits until the {@link DriverStation} has copied the simulated joystick axes.
+   */
+  private static void awaitDriveAxis() throws InterruptedException {
+    long deadline = System.nanoTime() + 1_000_000_000L;
+    while (DriverStation.getStickAxis(IOConstants.DRIVER_JOYSTICK_INDEX, DriverAxes.LEFT) != DRIVE_AXIS_VALUE) {
+      if (System.nanoTime() > deadline) {
+        throw new IllegalStateException("The DriverStation did not see the joystick axes");
+      }
+      Thread.sleep(1);
+    }
+  }
+}
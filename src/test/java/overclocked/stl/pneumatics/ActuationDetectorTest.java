@@ -0,0 +1,61 @@
+
+package overclocked.stl.pneumatics;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Feeds pressure traces to an {@link ActuationDetector} and checks when it reports the move as done.
+ */
+public class ActuationDetectorTest {
+  private static final double DIP_THRESHOLD = 1.0;
+  private static final double RECOVERY_THRESHOLD = 0.5;
+  private static final double SETTLE_TIME = 0.1;
+  private static final double START_PRESSURE = 100.0;
+
+  private final ActuationDetector detector = new ActuationDetector(DIP_THRESHOLD, RECOVERY_THRESHOLD, SETTLE_TIME);
+
+  @Test
+  public void dipThenRecoveryIsDone() {
+    detector.start(START_PRESSURE, 0);
+    assertFalse(detector.update(99.5, 10_000));
+    assertFalse("Still falling", detector.update(98.8, 20_000));
+    assertTrue(detector.update(99.4, 30_000));
+  }
+
+  @Test
+  public void dipThenSettleIsDone() {
+    detector.start(START_PRESSURE, 0);
+    assertFalse(detector.update(98.5, 10_000));
+    assertFalse("Not settled yet", detector.update(98.5, 60_000));
+    assertTrue(detector.update(98.6, 110_000));
+  }
+
+  @Test
+  public void noDipIsNeverDone() {
+    detector.start(START_PRESSURE, 0);
+    assertFalse(detector.update(99.5, 10_000));
+    assertFalse(detector.update(99.5, 1_000_000));
+    assertFalse(detector.update(START_PRESSURE, 2_000_000));
+  }
+
+  @Test
+  public void fallingPressureIsNotDone() {
+    detector.start(START_PRESSURE, 0);
+    for (int i = 1; i <= 20; i++) {
+      assertFalse(detector.update(START_PRESSURE - 0.5 * i, i * 60_000L));
+    }
+  }
+
+  @Test
+  public void startForgetsThePreviousMove() {
+    detector.start(START_PRESSURE, 0);
+    detector.update(98.5, 10_000);
+    assertTrue(detector.update(99.5, 20_000));
+
+    detector.start(99.5, 30_000);
+    assertFalse(detector.update(99.5, 1_000_000));
+  }
+}